@@ -0,0 +1,35 @@
+package com.merko.merko_backend.config;
+
+import com.merko.merko_backend.util.QueryCounter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        QueryCounter.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            logger.debug("{} {} executed {} SQL statements",
+                    request.getMethod(), request.getRequestURI(), QueryCounter.current());
+            QueryCounter.clear();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.merko.merko_backend.config;
+
+import com.merko.merko_backend.util.QueryCounter;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate hook that counts every prepared SQL statement for the current thread.
+ * Registered through spring.jpa.properties.hibernate.session_factory.statement_inspector.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.increment();
+        return sql;
+    }
+}
@@ -0,0 +1,11 @@
+package com.merko.merko_backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables @Scheduled background jobs such as the upload garbage collector; the scheduler's
+// pool size is spring.task.scheduling.pool.size, so long-running jobs don't hold up the others
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -11,6 +11,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -44,6 +45,27 @@ public class CartController {
         }
     }
 
+    @PostMapping("/add-batch")
+    @Transactional
+    public ResponseEntity<?> addToCartBatch(@RequestBody List<AddToCartRequest> requests,
+                                            @RequestParam String userEmail) {
+        try {
+            logger.info("🎯 CART BATCH ADD ENDPOINT HIT - User: {}, Lines: {}",
+                    userEmail, requests != null ? requests.size() : 0);
+
+            CartBatchAddResultDTO result = cartService.addToCartBatch(requests, userEmail);
+
+            logger.info("✅ Batch added to cart - Added: {}, Updated: {}, Rejected: {}",
+                    result.getAddedCount(), result.getUpdatedCount(), result.getRejectedCount());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("❌ Error adding items to cart", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/my-cart")
     public ResponseEntity<?> getMyCart(@RequestParam String userEmail) {
         try {
@@ -123,4 +145,9 @@ public class CartController {
                     .body(Map.of("message", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/reaper/stats")
+    public ResponseEntity<?> getReaperStats() {
+        return ResponseEntity.ok(cartService.getReaperStats());
+    }
+}
@@ -1,13 +1,18 @@
 package com.merko.merko_backend.controller;
 
+import com.merko.merko_backend.service.CatalogVersionTracker;
+import com.merko.merko_backend.service.ProductImportService;
 import com.merko.merko_backend.service.ProductService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -23,6 +28,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private CatalogVersionTracker catalogVersions;
+
     // Add SKU check endpoint
     @GetMapping("/check-sku/{sku}")
     public ResponseEntity<?> checkSkuAvailability(@PathVariable String sku,
@@ -56,9 +67,26 @@ public class ProductController {
         }
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importProducts(@RequestPart("file") MultipartFile file,
+                                            @RequestParam String userEmail) {
+        try {
+            logger.info("Received /import request for user: {}", userEmail);
+            var result = productImportService.importCsv(file, userEmail);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error importing products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/my-products")
-    public ResponseEntity<?> getMyProducts(@RequestParam String userEmail) {
+    public ResponseEntity<?> getMyProducts(@RequestParam String userEmail,
+                                           @RequestParam(required = false) String fields) {
         try {
+            if (fields != null) {
+                return ResponseEntity.ok(productService.getMyProductFields(userEmail, fields));
+            }
             var result = productService.getMyProducts(userEmail);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -68,8 +96,12 @@ public class ProductController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Integer id, @RequestParam String userEmail) {
+    public ResponseEntity<?> getProductById(@PathVariable Integer id, @RequestParam String userEmail,
+                                            @RequestParam(required = false) String fields) {
         try {
+            if (fields != null) {
+                return ResponseEntity.ok(productService.getProductFieldsById(id, userEmail, fields));
+            }
             var result = productService.getProductById(id, userEmail);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -107,8 +139,21 @@ public class ProductController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<?> getAllProducts(@RequestParam String userEmail, @RequestParam String role) {
+    public ResponseEntity<?> getAllProducts(@RequestParam String userEmail, @RequestParam String role,
+                                            @RequestParam(required = false) String fields,
+                                            WebRequest webRequest, HttpServletResponse response) {
         try {
+            if (isNotModified(webRequest, response, catalogVersions.catalogTag(role))) {
+                return null;
+            }
+            if (fields != null) {
+                return ResponseEntity.ok(productService.getAllProductFields(userEmail, role, fields));
+            }
+            if (productService.isJsonFragmentModeEnabled()) {
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                productService.writeAllProducts(userEmail, role, response.getOutputStream());
+                return null;
+            }
             var result = productService.getAllProducts(userEmail, role);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -118,6 +163,161 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/catalog")
+    public ResponseEntity<?> getCatalogPage(@RequestParam String userEmail,
+                                            @RequestParam String role,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer size,
+                                            @RequestParam(required = false) String fields,
+                                            WebRequest webRequest, HttpServletResponse response) {
+        try {
+            if (isNotModified(webRequest, response, catalogVersions.catalogTag(role))) {
+                return null;
+            }
+            if (fields != null) {
+                return ResponseEntity.ok(productService.getCatalogPageFields(userEmail, role, cursor, size, fields));
+            }
+            if (productService.isJsonFragmentModeEnabled()) {
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                productService.writeCatalogPage(userEmail, role, cursor, size, response.getOutputStream());
+                return null;
+            }
+            var result = productService.getCatalogPage(userEmail, role, cursor, size);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error fetching catalog page", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/low-stock")
+    public ResponseEntity<?> getLowStockProducts(@RequestParam String userEmail) {
+        try {
+            var result = productService.getLowStockProducts(userEmail);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error fetching low-stock products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/stock-ledger")
+    public ResponseEntity<?> getStockLedger(@PathVariable Integer id,
+                                            @RequestParam String userEmail,
+                                            @RequestParam(required = false) Integer limit) {
+        try {
+            var result = productService.getStockLedger(id, userEmail, limit);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error fetching stock ledger", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) String since,
+                                        @RequestParam String userEmail,
+                                        @RequestParam String role,
+                                        @RequestParam(required = false) Integer limit) {
+        try {
+            var result = productService.getChanges(since, userEmail, role, limit);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error fetching product changes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam("q") String query,
+                                            @RequestParam String userEmail,
+                                            @RequestParam String role,
+                                            @RequestParam(required = false) Integer limit) {
+        try {
+            var result = productService.searchProducts(query, userEmail, role, limit);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error searching products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<?> getProductFacets(@RequestParam String userEmail,
+                                              @RequestParam String role,
+                                              @RequestParam(required = false) List<String> category,
+                                              @RequestParam(required = false) List<String> brand,
+                                              @RequestParam(required = false) List<String> countryOfOrigin,
+                                              @RequestParam(required = false) List<String> priceBand) {
+        try {
+            var result = productService.getProductFacets(role, category, brand, countryOfOrigin, priceBand);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error fetching product facets", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterProducts(@RequestParam String userEmail,
+                                            @RequestParam String role,
+                                            @RequestParam(required = false) List<String> category,
+                                            @RequestParam(required = false) List<String> brand,
+                                            @RequestParam(required = false) List<String> countryOfOrigin,
+                                            @RequestParam(required = false) List<String> priceBand,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer size) {
+        try {
+            var result = productService.filterProducts(role, category, brand, countryOfOrigin, priceBand, cursor, size);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error filtering products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<?> exportCatalog(@RequestParam String userEmail, @RequestParam String role) {
+        try {
+            var body = productService.exportActiveCatalog(userEmail, role);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog.ndjson\"")
+                    .body(body);
+        } catch (Exception e) {
+            logger.error("Error exporting catalog", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCatalogCacheStats() {
+        return ResponseEntity.ok(productService.getCatalogCacheStats());
+    }
+
+    @GetMapping("/uploads/gc/stats")
+    public ResponseEntity<?> getUploadGcStats() {
+        return ResponseEntity.ok(productService.getUploadGcStats());
+    }
+
+    @GetMapping("/renditions/stats")
+    public ResponseEntity<?> getRenditionStats() {
+        return ResponseEntity.ok(productService.getRenditionStats());
+    }
+
+    @GetMapping("/stock-locks/stats")
+    public ResponseEntity<?> getStockLockStats() {
+        return ResponseEntity.ok(productService.getStockLockStats());
+    }
+
     // Add these endpoints to your existing ProductController
     @GetMapping("/supplier/{supplierId}")
     public ResponseEntity<?> getProductsBySupplier(@PathVariable Long supplierId,
@@ -135,9 +335,25 @@ public class ProductController {
 
     @GetMapping("/supplier")
     public ResponseEntity<?> getSupplierProducts(@RequestParam Long supplierId,
-                                                 @RequestParam String userEmail) {
+                                                 @RequestParam String userEmail,
+                                                 @RequestParam(required = false) String fields,
+                                                 WebRequest webRequest, HttpServletResponse response) {
         try {
             logger.info("Fetching active products for supplier ID: {}", supplierId);
+            if (isNotModified(webRequest, response, catalogVersions.supplierTag(supplierId))) {
+                return null;
+            }
+            if (fields != null) {
+                return ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "products", productService.getActiveSupplierProductFields(supplierId, userEmail, fields)
+                ));
+            }
+            if (productService.isJsonFragmentModeEnabled()) {
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                productService.writeActiveProductsBySupplier(supplierId, userEmail, response.getOutputStream());
+                return null;
+            }
             var result = productService.getActiveProductsBySupplier(supplierId, userEmail);
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -150,4 +366,9 @@ public class ProductController {
         }
     }
 
-}
\ No newline at end of file
+    // Answers If-None-Match with 304 when the listing version hasn't moved; clients must revalidate every time
+    private boolean isNotModified(WebRequest webRequest, HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        return webRequest.checkNotModified(etag);
+    }
+}
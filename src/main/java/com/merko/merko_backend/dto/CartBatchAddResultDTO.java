@@ -0,0 +1,19 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchAddResultDTO {
+    // Null with cart.store.mode=memory until the cart is first written to the database
+    private Long cartId;
+    private int addedCount;
+    private int updatedCount;
+    private int rejectedCount;
+
+    // One result per request line, in request order
+    private List<CartBatchLineResultDTO> lines;
+}
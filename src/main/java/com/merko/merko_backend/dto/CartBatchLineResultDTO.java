@@ -0,0 +1,21 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchLineResultDTO {
+    // Position of the line in the request, starting at 0
+    private int index;
+    private Integer productId;
+    private Integer requestedQuantity;
+
+    // ADDED, UPDATED or REJECTED
+    private String status;
+
+    // Quantity of the cart line after the batch; null when rejected
+    private Integer cartQuantity;
+    private String message;
+}
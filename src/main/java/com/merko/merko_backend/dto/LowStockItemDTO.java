@@ -0,0 +1,15 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockItemDTO {
+    private Integer productId;
+    private String productName;
+    private String sku;
+    private Integer stockQuantity;
+    private Integer lowStockAlert;
+}
@@ -0,0 +1,14 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockReportDTO {
+    // False while the startup scan is still running, so the list may be incomplete
+    private boolean indexReady;
+    private List<LowStockItemDTO> items;
+}
@@ -0,0 +1,23 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+    // Current state of products created or changed since the token
+    private List<ProductDTO> items;
+
+    // Tombstones: products deleted, or no longer visible to this role, since the token
+    private List<Integer> deletedIds;
+
+    // Pass as since= on the next call
+    private String nextToken;
+    private boolean hasMore;
+
+    // The token is missing or older than the retained change log; download the full catalog first
+    private boolean fullSyncRequired;
+}
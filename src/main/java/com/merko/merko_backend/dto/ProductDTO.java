@@ -37,4 +37,8 @@ public class ProductDTO {
 
     // Images as simple URLs
     private List<String> imageUrls;
+
+    // Same order as imageUrls; fall back to the original until the rendition is ready
+    private List<String> thumbnailUrls;
+    private List<String> mediumUrls;
 }
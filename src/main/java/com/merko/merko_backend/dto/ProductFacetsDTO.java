@@ -0,0 +1,18 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+    private int totalMatches;
+
+    // False while the facet index is still being built at startup
+    private boolean indexReady;
+
+    // Facet name (category, brand, countryOfOrigin, priceBand) -> value -> active product count
+    private Map<String, Map<String, Integer>> facets;
+}
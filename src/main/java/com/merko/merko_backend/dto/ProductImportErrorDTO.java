@@ -0,0 +1,14 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportErrorDTO {
+    // Line in the uploaded file, counting the header as line 1
+    private int line;
+    private String sku;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+    private int totalRows;
+    private int importedCount;
+    private int failedCount;
+
+    // Capped, so a badly formed file doesn't produce an enormous response
+    private List<ProductImportErrorDTO> errors;
+    private boolean errorsTruncated;
+    private long durationMs;
+}
@@ -0,0 +1,17 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+    private List<ProductDTO> items;
+
+    // Opaque token for the next page, null when this is the last page
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+}
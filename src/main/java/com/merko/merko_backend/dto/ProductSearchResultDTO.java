@@ -0,0 +1,17 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private String query;
+    private int totalMatches;
+
+    // False while the search index is still being built at startup
+    private boolean indexReady;
+    private List<ProductDTO> items;
+}
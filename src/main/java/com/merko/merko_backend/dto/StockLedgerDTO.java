@@ -0,0 +1,26 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerDTO {
+    private Integer productId;
+
+    // The product's stock column, which orders and listings read
+    private Integer stockQuantity;
+
+    // Last snapshot plus the movements recorded after it
+    private Integer ledgerQuantity;
+    private boolean consistent;
+
+    private Integer snapshotQuantity;
+    private LocalDateTime snapshotAt;
+
+    // Newest first
+    private List<StockMovementDTO> movements;
+}
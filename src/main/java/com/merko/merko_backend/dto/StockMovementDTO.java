@@ -0,0 +1,16 @@
+package com.merko.merko_backend.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDTO {
+    private Long id;
+    private Integer delta;
+    private String reason;
+    private String reference;
+    private LocalDateTime recordedAt;
+}
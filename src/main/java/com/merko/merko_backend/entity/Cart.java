@@ -12,7 +12,10 @@ import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        // Backs the abandoned-cart reaper's keyset scan over active carts
+        @Index(name = "idx_carts_status", columnList = "status, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -7,11 +7,18 @@ import java.util.ArrayList;
 import java.util.List;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Backs the keyset-paginated catalog listing
+        @Index(name = "idx_products_status_updated", columnList = "status, updated_at, id"),
+        @Index(name = "idx_products_updated", columnList = "updated_at, id")
+})
+// Only changed columns are written, so an edit that leaves stock alone can't overwrite a concurrent deduction
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
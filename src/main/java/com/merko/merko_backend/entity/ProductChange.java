@@ -0,0 +1,33 @@
+package com.merko.merko_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+
+// One row per committed product write; seq orders changes for delta sync
+@Entity
+@Table(name = "product_changes", indexes = {
+        @Index(name = "idx_product_changes_changed_at", columnList = "changed_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "supplier_id")
+    private Long supplierId;
+
+    @Column(name = "change_type", nullable = false, length = 16)
+    private String changeType;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
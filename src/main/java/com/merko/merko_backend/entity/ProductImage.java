@@ -5,7 +5,10 @@ import lombok.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
-@Table(name = "product_images")
+@Table(name = "product_images", indexes = {
+        // Reference counts of content-addressed files look rows up by URL
+        @Index(name = "idx_product_images_image_url", columnList = "image_url")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -23,4 +26,13 @@ public class ProductImage {
     @JoinColumn(name = "product_id", nullable = false)
     @JsonBackReference
     private Product product;
+
+    // Progress of the thumbnail/medium renditions; null for images uploaded before renditions existed
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rendition_status", length = 16)
+    private RenditionStatus renditionStatus;
+
+    public enum RenditionStatus {
+        PENDING, READY, FAILED
+    }
 }
@@ -0,0 +1,48 @@
+package com.merko.merko_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+
+// Append-only stock ledger: one row per committed change to a product's stock
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_product", columnList = "product_id, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovement {
+
+    public enum Reason {
+        INITIAL,
+        ADJUSTMENT,
+        ORDER_DEDUCTION,
+        ORDER_RESTORE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "supplier_id")
+    private Long supplierId;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 24)
+    private Reason reason;
+
+    // What caused the movement, e.g. the order item id
+    @Column(length = 64)
+    private String reference;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+}
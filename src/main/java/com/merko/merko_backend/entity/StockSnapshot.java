@@ -0,0 +1,28 @@
+package com.merko.merko_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+
+// Stock of a product folded from its movements up to lastMovementId
+@Entity
+@Table(name = "stock_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSnapshot {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "last_movement_id", nullable = false)
+    private Long lastMovementId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -4,11 +4,62 @@ import com.merko.merko_backend.entity.CartItem;
 import com.merko.merko_backend.entity.Cart;
 import com.merko.merko_backend.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
+    /*
+     * Inserts the line or increments its quantity in one statement, keyed on (cart_id, product_id).
+     * Parameters: cart_id, product_id, quantity, price_at_time, created_at, updated_at. Used through
+     * JdbcTemplate for both single adds and batches; an existing line keeps its price.
+     */
+    String UPSERT_QUANTITY_SQL = "INSERT INTO cart_items (cart_id, product_id, quantity, price_at_time, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?) AS new "
+            + "ON DUPLICATE KEY UPDATE quantity = cart_items.quantity + new.quantity, updated_at = new.updated_at";
+
     Optional<CartItem> findByCartAndProduct(Cart cart, Product product);
 
     void deleteByCartAndProduct(Cart cart, Product product);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN " +
+            "(SELECT c.id FROM Cart c WHERE c.id IN :cartIds AND c.status = 'ABANDONED')")
+    int deleteItemsOfAbandonedCarts(@Param("cartIds") Collection<Long> cartIds);
+
+    // Cart view: the lines with their products in one query
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.cart.id = :cartId ORDER BY ci.id")
+    List<CartItem> findByCartIdWithProduct(@Param("cartId") Long cartId);
+
+    // Existing lines of a cart for a set of products, without loading the entities
+    @Query("SELECT ci.id AS id, ci.product.id AS productId, ci.quantity AS quantity FROM CartItem ci " +
+            "WHERE ci.cart.id = :cartId AND ci.product.id IN :productIds")
+    List<CartLineKey> findLineKeys(@Param("cartId") Long cartId, @Param("productIds") Collection<Integer> productIds);
+
+    // Line state of several carts, for the in-memory cart store
+    @Query("SELECT ci.id AS id, ci.cart.id AS cartId, ci.product.id AS productId, ci.quantity AS quantity, " +
+            "ci.priceAtTime AS priceAtTime, ci.createdAt AS createdAt FROM CartItem ci " +
+            "WHERE ci.cart.id IN :cartIds ORDER BY ci.id")
+    List<CartLineState> findLineStatesByCartIds(@Param("cartIds") Collection<Long> cartIds);
+
+    interface CartLineState {
+        Long getId();
+        Long getCartId();
+        Integer getProductId();
+        Integer getQuantity();
+        BigDecimal getPriceAtTime();
+        LocalDateTime getCreatedAt();
+    }
+
+    interface CartLineKey {
+        Long getId();
+        Integer getProductId();
+        Integer getQuantity();
+    }
 }
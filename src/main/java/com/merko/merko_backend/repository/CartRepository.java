@@ -2,9 +2,14 @@ package com.merko.merko_backend.repository;
 
 import com.merko.merko_backend.entity.Cart;
 import com.merko.merko_backend.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
@@ -13,7 +18,28 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c WHERE c.user = :user AND c.status = 'ACTIVE'")
     Optional<Cart> findActiveCartByUser(@Param("user") User user);
 
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId AND c.status = 'ACTIVE'")
+    Optional<Cart> findActiveCartByUserId(@Param("userId") Long userId);
+
     // Updated to use User instead of Merchant
     @Query("SELECT c FROM Cart c WHERE c.user = :user AND c.status = :status")
     Optional<Cart> findByUserAndStatus(@Param("user") User user, @Param("status") String status);
-}
\ No newline at end of file
+
+    // Keyset chunk of active carts where neither the cart nor any of its lines changed since the cutoff
+    @Query("SELECT c.id FROM Cart c WHERE c.status = 'ACTIVE' AND c.id > :afterId AND c.updatedAt < :cutoff " +
+            "AND NOT EXISTS (SELECT 1 FROM CartItem ci WHERE ci.cart.id = c.id AND ci.updatedAt >= :cutoff) " +
+            "ORDER BY c.id")
+    List<Long> findIdleCartIds(@Param("afterId") Long afterId, @Param("cutoff") LocalDateTime cutoff, Pageable limit);
+
+    // Re-checks idleness in the statement, so a cart used since it was selected is left alone
+    @Modifying
+    @Query("UPDATE Cart c SET c.status = 'ABANDONED', c.updatedAt = :now WHERE c.id IN :ids AND c.status = 'ACTIVE' " +
+            "AND c.updatedAt < :cutoff " +
+            "AND NOT EXISTS (SELECT 1 FROM CartItem ci WHERE ci.cart.id = c.id AND ci.updatedAt >= :cutoff)")
+    int markAbandoned(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff,
+                      @Param("now") LocalDateTime now);
+
+    // Locks the given carts' rows until the caller commits, so the reaper cannot abandon them meanwhile; returns those still active
+    @Query(value = "SELECT id FROM carts WHERE id IN (:ids) AND status = 'ACTIVE' FOR UPDATE", nativeQuery = true)
+    List<Long> lockActiveCartIds(@Param("ids") Collection<Long> ids);
+}
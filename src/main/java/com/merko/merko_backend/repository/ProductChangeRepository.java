@@ -0,0 +1,28 @@
+package com.merko.merko_backend.repository;
+
+import com.merko.merko_backend.entity.ProductChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    List<ProductChange> findBySeqGreaterThanOrderBySeqAsc(Long seq, Pageable limit);
+
+    @Query("SELECT MIN(c.seq) FROM ProductChange c")
+    Long findMinSeq();
+
+    @Query("SELECT MAX(c.seq) FROM ProductChange c")
+    Long findMaxSeq();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductChange c WHERE c.changedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,7 +1,41 @@
 package com.merko.merko_backend.repository;
 
 import com.merko.merko_backend.entity.ProductImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
+
+    // Batch-loads the images for a page of products
+    @Query("SELECT i FROM ProductImage i WHERE i.product.id IN :productIds ORDER BY i.id")
+    List<ProductImage> findByProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    // First (lowest id) image of each product
+    @Query("SELECT i FROM ProductImage i WHERE i.id IN " +
+            "(SELECT MIN(i2.id) FROM ProductImage i2 WHERE i2.product.id IN :productIds GROUP BY i2.product.id)")
+    List<ProductImage> findFirstImagesByProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    // Stored files are shared between rows with identical content
+    long countByImageUrl(String imageUrl);
+
+    @Query("SELECT DISTINCT i.imageUrl FROM ProductImage i")
+    List<String> findAllImageUrls();
+
+    // Images still waiting for renditions, walked in id order
+    @Query("SELECT i FROM ProductImage i WHERE i.id > :afterId AND " +
+            "(i.renditionStatus IS NULL OR i.renditionStatus = com.merko.merko_backend.entity.ProductImage.RenditionStatus.PENDING) " +
+            "ORDER BY i.id")
+    List<ProductImage> findPendingRenditions(@Param("afterId") Long afterId, Pageable limit);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProductImage i SET i.renditionStatus = :status WHERE i.id IN :ids")
+    int updateRenditionStatus(@Param("ids") Collection<Long> ids, @Param("status") ProductImage.RenditionStatus status);
 }
@@ -2,17 +2,39 @@
 package com.merko.merko_backend.repository;
 
 import com.merko.merko_backend.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Integer> {
     // Existing methods
     List<Product> findByUserId(Long userId);
     Optional<Product> findBySkuAndUserId(String sku, Long userId);
 
+    // Used by the bulk import to validate a whole file against one query
+    @Query("SELECT p.sku FROM Product p WHERE p.userId = :userId AND p.sku IS NOT NULL")
+    List<String> findSkusByUserId(@Param("userId") Long userId);
+
+    List<Product> findByUserIdAndSkuIn(Long userId, Collection<String> skus);
+
+    interface SkuKey {
+        Integer getId();
+        String getSku();
+    }
+
+    @Query("SELECT p.id AS id, p.sku AS sku FROM Product p WHERE p.userId = :userId AND p.sku IS NOT NULL")
+    List<SkuKey> findSkuKeysByUserId(@Param("userId") Long userId);
+
     // NEW METHODS for supplier products
     List<Product> findByUserIdAndStatus(Long userId, String status);
 
@@ -22,4 +44,66 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     // Method to get products by supplier ID with eager loading of images
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.userId = :supplierId AND p.status = 'Active'")
     List<Product> findBySupplierIdWithImages(@Param("supplierId") Long supplierId);
-}
\ No newline at end of file
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.userId = :userId")
+    List<Product> findByUserIdWithImages(@Param("userId") Long userId);
+
+    // Walks the whole table in id order, a chunk at a time (used to build in-memory indexes)
+    List<Product> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable limit);
+
+    // Forward-only cursor over the active catalog with one row per image, grouped by product.
+    // A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result set.
+    // Must be consumed inside a transaction and closed afterwards.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p, i FROM Product p LEFT JOIN p.images i WHERE p.status = 'Active' ORDER BY p.id, i.id")
+    Stream<Object[]> streamActiveCatalogWithImages();
+
+    // Row identity and version, enough to page the catalog and validate cached views
+    interface CatalogKey {
+        Integer getId();
+        LocalDateTime getUpdatedAt();
+    }
+
+    @Query("SELECT p.id AS id, p.updatedAt AS updatedAt FROM Product p WHERE p.status = :status ORDER BY p.id")
+    List<CatalogKey> findCatalogKeysByStatus(@Param("status") String status);
+
+    @Query("SELECT p.id AS id, p.updatedAt AS updatedAt FROM Product p ORDER BY p.id")
+    List<CatalogKey> findCatalogKeys();
+
+    // Keyset-paginated catalog (newest first). Pass PageRequest.of(0, n) as the row limit.
+    @Query("SELECT p.id AS id, p.updatedAt AS updatedAt FROM Product p WHERE p.status = :status " +
+            "ORDER BY p.updatedAt DESC, p.id DESC")
+    List<CatalogKey> findCatalogPageByStatus(@Param("status") String status, Pageable limit);
+
+    @Query("SELECT p.id AS id, p.updatedAt AS updatedAt FROM Product p WHERE p.status = :status " +
+            "AND (p.updatedAt < :updatedAt OR (p.updatedAt = :updatedAt AND p.id < :id)) " +
+            "ORDER BY p.updatedAt DESC, p.id DESC")
+    List<CatalogKey> findCatalogPageByStatusAfter(@Param("status") String status,
+                                                  @Param("updatedAt") LocalDateTime updatedAt,
+                                                  @Param("id") Integer id,
+                                                  Pageable limit);
+
+    @Query("SELECT p.id AS id, p.updatedAt AS updatedAt FROM Product p ORDER BY p.updatedAt DESC, p.id DESC")
+    List<CatalogKey> findCatalogPage(Pageable limit);
+
+    @Query("SELECT p.id AS id, p.updatedAt AS updatedAt FROM Product p " +
+            "WHERE p.updatedAt < :updatedAt OR (p.updatedAt = :updatedAt AND p.id < :id) " +
+            "ORDER BY p.updatedAt DESC, p.id DESC")
+    List<CatalogKey> findCatalogPageAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                                          @Param("id") Integer id,
+                                          Pageable limit);
+
+    // Checks and deducts in one statement; 0 rows updated means not enough stock
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = :now " +
+            "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int deductStock(@Param("id") Integer id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = COALESCE(p.stockQuantity, 0) + :quantity, p.updatedAt = :now " +
+            "WHERE p.id = :id")
+    int restoreStock(@Param("id") Integer id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,22 @@
+package com.merko.merko_backend.repository;
+
+import com.merko.merko_backend.entity.StockMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    List<StockMovement> findByProductIdOrderByIdDesc(Integer productId, Pageable limit);
+
+    // Movements not yet folded into the product's snapshot
+    @Query("SELECT COALESCE(SUM(m.delta), 0) FROM StockMovement m WHERE m.productId = :productId AND m.id > :afterId")
+    long sumDeltaAfter(@Param("productId") Integer productId, @Param("afterId") Long afterId);
+
+    @Query("SELECT MAX(m.id) FROM StockMovement m WHERE m.recordedAt < :before")
+    Long findMaxIdRecordedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,7 @@
+package com.merko.merko_backend.repository;
+
+import com.merko.merko_backend.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Integer> {
+}
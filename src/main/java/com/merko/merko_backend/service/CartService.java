@@ -6,13 +6,14 @@ import com.merko.merko_backend.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Service
 public class CartService {
@@ -31,6 +32,20 @@ public class CartService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private AbandonedCartReaper cartReaper;
+
+    private static final int MAX_BATCH_LINES = 500;
+
     @Transactional
     public void addToCart(AddToCartRequest request, String userEmail) {
         User user = userRepository.findByEmail(userEmail)
@@ -51,6 +66,17 @@ public class CartService {
 
         // REMOVED: Stock quantity validation - allow any quantity in cart
 
+        if (cartStore.isEnabled()) {
+            if (request.getQuantity() == null || product.getPrice() == null) {
+                throw new RuntimeException("Quantity and price are required");
+            }
+            cartStore.addAll(user.getId(), Map.of(product.getId(), request.getQuantity()),
+                    Map.of(product.getId(), product.getPrice()));
+            logger.info("Product {} added to in-memory cart for user {} with quantity {}",
+                    product.getProductName(), user.getEmail(), request.getQuantity());
+            return;
+        }
+
         // Find or create active cart for user
         Cart cart = cartRepository.findActiveCartByUser(user)
                 .orElseGet(() -> {
@@ -60,33 +86,127 @@ public class CartService {
                     return cartRepository.save(newCart);
                 });
 
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
-
-        if (existingItem.isPresent()) {
-            // Update quantity - allow any quantity without stock validation
-            CartItem cartItem = existingItem.get();
-            int newQuantity = cartItem.getQuantity() + request.getQuantity();
-
-            // No stock validation - store whatever quantity user wants
-            cartItem.setQuantity(newQuantity);
-            cartItemRepository.save(cartItem);
-            logger.info("Updated cart item quantity - Product: {}, New Quantity: {}", product.getProductName(), newQuantity);
-        } else {
-            // Create new cart item - allow any quantity without stock validation
-            CartItem cartItem = new CartItem();
-            cartItem.setCart(cart);
-            cartItem.setProduct(product);
-            cartItem.setQuantity(request.getQuantity()); // Store exact requested quantity
-            cartItem.setPriceAtTime(product.getPrice()); // Store current price
-            cartItemRepository.save(cartItem);
-            cart.addCartItem(cartItem);
+        // Insert the line or increment the existing one atomically - no stock validation, and
+        // no read-modify-write, so double-clicks and parallel tabs can't lose an increment
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int affected = jdbcTemplate.update(CartItemRepository.UPSERT_QUANTITY_SQL, cart.getId(), product.getId(),
+                request.getQuantity(), product.getPrice(), now, now);
+        if (affected == 1) {
             logger.info("Added new item to cart - Product: {}, Quantity: {}", product.getProductName(), request.getQuantity());
+        } else {
+            logger.info("Updated cart item quantity - Product: {}, Added: {}", product.getProductName(), request.getQuantity());
         }
 
         logger.info("Product {} added to cart for user {} with quantity {}", product.getProductName(), user.getEmail(), request.getQuantity());
     }
 
+    /**
+     * Adds many lines in one transaction: one query resolves all products, one finds the
+     * lines already in the cart, and all lines are written as one JDBC upsert batch. Invalid
+     * lines are rejected individually; the rest are still added.
+     */
+    @Transactional
+    public CartBatchAddResultDTO addToCartBatch(List<AddToCartRequest> requests, String userEmail) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("No items to add");
+        }
+        if (requests.size() > MAX_BATCH_LINES) {
+            throw new RuntimeException("A batch can add at most " + MAX_BATCH_LINES + " items");
+        }
+
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Verify user is a merchant
+        if (!user.getRole().toString().equals("MERCHANT")) {
+            throw new RuntimeException("Only merchants can add items to cart");
+        }
+
+        Set<Integer> productIds = new HashSet<>();
+        for (AddToCartRequest request : requests) {
+            if (request != null && request.getProductId() != null) {
+                productIds.add(request.getProductId());
+            }
+        }
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+
+        // Validate each line; repeated products are summed into one cart line
+        CartBatchLineResultDTO[] results = new CartBatchLineResultDTO[requests.size()];
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            AddToCartRequest request = requests.get(i);
+            Integer productId = request != null ? request.getProductId() : null;
+            Integer quantity = request != null ? request.getQuantity() : null;
+            String problem = validateBatchLine(productId, quantity, products.get(productId));
+            if (problem != null) {
+                results[i] = new CartBatchLineResultDTO(i, productId, quantity, "REJECTED", null, problem);
+            } else {
+                quantities.merge(productId, quantity, Integer::sum);
+            }
+        }
+
+        if (cartStore.isEnabled()) {
+            return addToCartStore(user, requests, results, quantities, products);
+        }
+
+        // Find or create active cart for user
+        Cart cart = cartRepository.findActiveCartByUser(user)
+                .orElseGet(() -> {
+                    Cart newCart = new Cart();
+                    newCart.setUser(user);
+                    newCart.setStatus("ACTIVE");
+                    return cartRepository.save(newCart);
+                });
+
+        // Only decides ADDED vs UPDATED in the response; the upsert below is correct either way
+        Set<Integer> alreadyInCart = new HashSet<>();
+        if (!quantities.isEmpty()) {
+            for (CartItemRepository.CartLineKey line : cartItemRepository.findLineKeys(cart.getId(), quantities.keySet())) {
+                alreadyInCart.add(line.getProductId());
+            }
+        }
+
+        // One upsert batch: lines added concurrently since the lookup are incremented, not duplicated
+        List<Object[]> upserts = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            upserts.add(new Object[]{cart.getId(), entry.getKey(), entry.getValue(),
+                    products.get(entry.getKey()).getPrice(), now, now});
+        }
+        Map<Integer, Integer> newQuantities = new HashMap<>();
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(CartItemRepository.UPSERT_QUANTITY_SQL, upserts);
+            for (CartItemRepository.CartLineKey line : cartItemRepository.findLineKeys(cart.getId(), quantities.keySet())) {
+                newQuantities.put(line.getProductId(), line.getQuantity());
+            }
+        }
+
+        int added = 0;
+        int updated = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            AddToCartRequest request = requests.get(i);
+            boolean wasInCart = alreadyInCart.contains(request.getProductId());
+            if (wasInCart) {
+                updated++;
+            } else {
+                added++;
+            }
+            results[i] = new CartBatchLineResultDTO(i, request.getProductId(), request.getQuantity(),
+                    wasInCart ? "UPDATED" : "ADDED", newQuantities.get(request.getProductId()), null);
+        }
+        int rejected = results.length - added - updated;
+
+        logger.info("Batch added {} lines to cart {} for user {}: {} added, {} updated, {} rejected",
+                requests.size(), cart.getId(), user.getEmail(), added, updated, rejected);
+        return new CartBatchAddResultDTO(cart.getId(), added, updated, rejected, Arrays.asList(results));
+    }
+
     public CartDTO getMyCart(String userEmail) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -96,6 +216,10 @@ public class CartService {
             throw new RuntimeException("Only merchants can view cart");
         }
 
+        if (cartStore.isEnabled()) {
+            return convertToCartDTO(cartStore.view(user.getId()), user);
+        }
+
         // Find active cart
         Optional<Cart> cartOpt = cartRepository.findActiveCartByUser(user);
 
@@ -125,6 +249,16 @@ public class CartService {
             throw new RuntimeException("Only merchants can update cart");
         }
 
+        if (cartStore.isEnabled()) {
+            if (request.getQuantity() == null) {
+                throw new RuntimeException("Quantity is required");
+            }
+            // Only the user's own cart is searched, so ownership needs no extra check
+            cartStore.setQuantity(user.getId(), cartItemId, request.getQuantity());
+            logger.info("In-memory cart item updated - ID: {}, Quantity: {}", cartItemId, request.getQuantity());
+            return;
+        }
+
         // Find cart item
         CartItem cartItem = cartItemRepository.findById(cartItemId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found"));
@@ -152,6 +286,12 @@ public class CartService {
             throw new RuntimeException("Only merchants can remove cart items");
         }
 
+        if (cartStore.isEnabled()) {
+            Integer productId = cartStore.remove(user.getId(), cartItemId);
+            logger.info("In-memory cart item removed - ID: {}, Product ID: {}", cartItemId, productId);
+            return;
+        }
+
         // Find cart item
         CartItem cartItem = cartItemRepository.findById(cartItemId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found"));
@@ -176,6 +316,12 @@ public class CartService {
             throw new RuntimeException("Only merchants can clear cart");
         }
 
+        if (cartStore.isEnabled()) {
+            cartStore.clear(user.getId());
+            logger.info("In-memory cart cleared for user: {}", userEmail);
+            return;
+        }
+
         // Find active cart
         Optional<Cart> cartOpt = cartRepository.findActiveCartByUser(user);
 
@@ -188,7 +334,66 @@ public class CartService {
         }
     }
 
+    public Map<String, Object> getReaperStats() {
+        return cartReaper.getStats();
+    }
+
     // Private helper methods
+    private CartBatchAddResultDTO addToCartStore(User user, List<AddToCartRequest> requests,
+                                                 CartBatchLineResultDTO[] results, Map<Integer, Integer> quantities,
+                                                 Map<Integer, Product> products) {
+        Map<Integer, BigDecimal> prices = new HashMap<>();
+        for (Integer productId : quantities.keySet()) {
+            prices.put(productId, products.get(productId).getPrice());
+        }
+        Map<Integer, Integer> previous = quantities.isEmpty()
+                ? Map.of() : cartStore.addAll(user.getId(), quantities, prices);
+
+        int added = 0;
+        int updated = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            AddToCartRequest request = requests.get(i);
+            int before = previous.get(request.getProductId());
+            if (before > 0) {
+                updated++;
+            } else {
+                added++;
+            }
+            results[i] = new CartBatchLineResultDTO(i, request.getProductId(), request.getQuantity(),
+                    before > 0 ? "UPDATED" : "ADDED", before + quantities.get(request.getProductId()), null);
+        }
+        int rejected = results.length - added - updated;
+
+        logger.info("Batch added {} lines to in-memory cart for user {}: {} added, {} updated, {} rejected",
+                requests.size(), user.getEmail(), added, updated, rejected);
+        // A cart that exists only in memory has no database id yet, so cartId may be null here
+        return new CartBatchAddResultDTO(cartStore.view(user.getId()).getCartId(), added, updated, rejected,
+                Arrays.asList(results));
+    }
+
+    private static String validateBatchLine(Integer productId, Integer quantity, Product product) {
+        if (productId == null) {
+            return "Product id is required";
+        }
+        if (quantity == null || quantity <= 0) {
+            return "Quantity must be greater than zero";
+        }
+        if (product == null) {
+            return "Product not found";
+        }
+        if (!"Active".equals(product.getStatus())) {
+            return "Product is not available";
+        }
+        if (product.getPrice() == null) {
+            return "Product has no price";
+        }
+        return null;
+    }
+
+    // Fixed query count whatever the cart size: lines with products, then all their images
     private CartDTO convertToCartDTO(Cart cart) {
         CartDTO cartDTO = new CartDTO();
         cartDTO.setId(cart.getId());
@@ -198,51 +403,106 @@ public class CartService {
         cartDTO.setCreatedAt(cart.getCreatedAt());
         cartDTO.setUpdatedAt(cart.getUpdatedAt());
 
-        // Convert cart items
-        List<CartItemDTO> cartItemDTOs = cart.getCartItems().stream()
-                .map(this::convertToCartItemDTO)
-                .collect(Collectors.toList());
-        cartDTO.setCartItems(cartItemDTOs);
+        return fillCartItems(cartDTO, cartItemRepository.findByCartIdWithProduct(cart.getId()));
+    }
 
-        // Calculate totals
-        BigDecimal subtotal = cartItemDTOs.stream()
-                .map(CartItemDTO::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // In-memory cart: one query for the products of its lines, one for their images
+    private CartDTO convertToCartDTO(WriteBehindCartStore.StoredCart stored, User user) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setId(stored.getCartId());
+        cartDTO.setUserEmail(user.getEmail());
+        cartDTO.setUserName(getUserDisplayName(user));
+        cartDTO.setStatus("ACTIVE");
+        cartDTO.setCreatedAt(stored.getCreatedAt());
+        cartDTO.setUpdatedAt(stored.getUpdatedAt());
+
+        Set<Integer> productIds = new HashSet<>();
+        for (WriteBehindCartStore.StoredLine line : stored.getLines()) {
+            productIds.add(line.getProductId());
+        }
+        Map<Integer, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Product product : productRepository.findAllById(productIds)) {
+                products.put(product.getId(), product);
+            }
+        }
 
-        Integer totalQuantity = cartItemDTOs.stream()
-                .mapToInt(CartItemDTO::getQuantity)
-                .sum();
+        List<CartItem> cartItems = new ArrayList<>(stored.getLines().size());
+        for (WriteBehindCartStore.StoredLine line : stored.getLines()) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                continue; // product deleted since it was added
+            }
+            CartItem cartItem = new CartItem();
+            cartItem.setId(line.getId());
+            cartItem.setProduct(product);
+            cartItem.setQuantity(line.getQuantity());
+            cartItem.setPriceAtTime(line.getPriceAtTime());
+            cartItem.setCreatedAt(line.getCreatedAt());
+            cartItems.add(cartItem);
+        }
+        return fillCartItems(cartDTO, cartItems);
+    }
 
+    private CartDTO fillCartItems(CartDTO cartDTO, List<CartItem> cartItems) {
+        Map<Integer, List<String>> imageUrls = loadImageUrls(cartItems);
+
+        // Convert cart items and calculate totals in the same pass
+        List<CartItemDTO> cartItemDTOs = new ArrayList<>(cartItems.size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        int totalQuantity = 0;
+        for (CartItem cartItem : cartItems) {
+            CartItemDTO dto = convertToCartItemDTO(cartItem, imageUrls.get(cartItem.getProduct().getId()));
+            cartItemDTOs.add(dto);
+            subtotal = subtotal.add(dto.getTotal());
+            totalQuantity += dto.getQuantity() != null ? dto.getQuantity() : 0;
+        }
+
+        cartDTO.setCartItems(cartItemDTOs);
         cartDTO.setSubtotal(subtotal);
         cartDTO.setTotalQuantity(totalQuantity);
 
         logger.debug("Cart converted to DTO - ID: {}, Items: {}, Subtotal: {}",
-                cart.getId(), cartItemDTOs.size(), subtotal);
+                cartDTO.getId(), cartItemDTOs.size(), subtotal);
 
         return cartDTO;
     }
 
-    private CartItemDTO convertToCartItemDTO(CartItem cartItem) {
+    private Map<Integer, List<String>> loadImageUrls(List<CartItem> cartItems) {
+        Map<Integer, List<String>> imageUrls = new HashMap<>();
+        if (cartItems.isEmpty()) {
+            return imageUrls;
+        }
+        Set<Integer> productIds = new HashSet<>();
+        for (CartItem cartItem : cartItems) {
+            productIds.add(cartItem.getProduct().getId());
+        }
+        for (ProductImage image : productImageRepository.findByProductIds(productIds)) {
+            imageUrls.computeIfAbsent(image.getProduct().getId(), id -> new ArrayList<>()).add(image.getImageUrl());
+        }
+        return imageUrls;
+    }
+
+    private CartItemDTO convertToCartItemDTO(CartItem cartItem, List<String> imageUrls) {
+        Product product = cartItem.getProduct();
         CartItemDTO dto = new CartItemDTO();
         dto.setId(cartItem.getId());
-        dto.setProductId(cartItem.getProduct().getId());
-        dto.setProductName(cartItem.getProduct().getProductName());
-        dto.setProductSku(cartItem.getProduct().getSku());
-        dto.setBrand(cartItem.getProduct().getBrand());
-        dto.setCategory(cartItem.getProduct().getCategory());
+        dto.setProductId(product.getId());
+        dto.setProductName(product.getProductName());
+        dto.setProductSku(product.getSku());
+        dto.setBrand(product.getBrand());
+        dto.setCategory(product.getCategory());
         dto.setPriceAtTime(cartItem.getPriceAtTime());
         dto.setQuantity(cartItem.getQuantity());
         dto.setTotal(cartItem.getTotal());
-        dto.setStockQuantity(cartItem.getProduct().getStockQuantity());
+        dto.setStockQuantity(product.getStockQuantity());
         dto.setCreatedAt(cartItem.getCreatedAt());
 
         // Get supplier company name from product
-        dto.setSupplierCompanyName(cartItem.getProduct().getSupplierCompanyName());
+        dto.setSupplierCompanyName(product.getSupplierCompanyName());
 
-        if (cartItem.getProduct().getImages() != null && !cartItem.getProduct().getImages().isEmpty()) {
-            dto.setImageUrls(cartItem.getProduct().getImages().stream()
-                    .map(ProductImage::getImageUrl)
-                    .collect(Collectors.toList()));
+        if (imageUrls != null) {
+            dto.setImageUrls(imageUrls);
         }
 
         return dto;
@@ -0,0 +1,19 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+
+import java.util.List;
+
+/**
+ * In-memory read model over the products table. Filled once by CatalogIndexBuilder at startup
+ * and kept current afterwards by listening for ProductChangeEvent.
+ */
+public interface CatalogIndex {
+
+    // Adds products read by the startup scan, skipping any already changed or deleted since the scan began
+    void loadFromScan(List<Product> batch);
+
+    void scanCompleted();
+
+    boolean isReady();
+}
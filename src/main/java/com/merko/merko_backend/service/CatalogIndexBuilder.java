@@ -0,0 +1,64 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Scans the products table once at startup, in id order, and feeds every CatalogIndex.
+ * Runs on a background thread so startup isn't blocked by large catalogs.
+ */
+@Component
+public class CatalogIndexBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogIndexBuilder.class);
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private List<CatalogIndex> indexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread builder = new Thread(this::build, "catalog-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void build() {
+        long started = System.currentTimeMillis();
+        int scanned = 0;
+        try {
+            Integer lastId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                for (CatalogIndex index : indexes) {
+                    index.loadFromScan(batch);
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+                scanned += batch.size();
+            } while (batch.size() == BUILD_BATCH_SIZE);
+
+            for (CatalogIndex index : indexes) {
+                index.scanCompleted();
+            }
+            logger.info("Catalog indexes built from {} products in {} ms", scanned, System.currentTimeMillis() - started);
+        } catch (Exception ex) {
+            logger.error("Failed to build catalog indexes", ex);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.merko.merko_backend.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for catalog listings, bumped by every ProductChangeEvent: one for the
+ * whole catalog and one per supplier. Listing endpoints turn them into ETags so unchanged
+ * polls get a 304 without touching the database.
+ * Counters live in memory, so tags include a boot epoch and never match across restarts.
+ */
+@Component
+public class CatalogVersionTracker {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final Map<Long, AtomicLong> supplierVersions = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        catalogVersion.incrementAndGet();
+        if (event.getSupplierId() != null) {
+            supplierVersions.computeIfAbsent(event.getSupplierId(), id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    // Read before loading the listing, so a concurrent change can only make the tag older than the data
+    public String catalogTag(String variant) {
+        return "W/\"" + epoch + "-" + catalogVersion.get() + "-" + variant + "\"";
+    }
+
+    public String supplierTag(Long supplierId) {
+        AtomicLong version = supplierVersions.get(supplierId);
+        return "W/\"" + epoch + "-s" + supplierId + "-" + (version != null ? version.get() : 0) + "\"";
+    }
+}
@@ -7,7 +7,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
 
 @Service
@@ -27,7 +28,12 @@ public class CheckoutService {
     @Autowired
     private ProductRepository productRepository;
 
-    @Transactional
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     public Order processCheckout(String userEmail, CheckoutRequest checkoutRequest) {
         logger.info("🔄 Processing checkout for user: {}", userEmail);
 
@@ -42,6 +48,27 @@ public class CheckoutService {
 
         logger.info("✅ Merchant found: {} {} (ID: {})", user.getFirstName(), user.getLastName(), user.getId());
 
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        if (!cartStore.isEnabled()) {
+            return transaction.execute(status -> checkout(user, checkoutRequest));
+        }
+
+        // The in-memory cart is written and committed before the checkout transaction starts:
+        // under REPEATABLE READ that transaction's first read fixes its snapshot, so it would
+        // not see a write committed while it runs
+        long cartVersion = cartStore.beginCheckout(user.getId());
+        Order order;
+        try {
+            order = transaction.execute(status -> checkout(user, checkoutRequest));
+        } catch (RuntimeException ex) {
+            cartStore.abortCheckout(user.getId());
+            throw ex;
+        }
+        cartStore.completeCheckout(user.getId(), cartVersion);
+        return order;
+    }
+
+    private Order checkout(User user, CheckoutRequest checkoutRequest) {
         // Find active cart using User
         Cart cart = cartRepository.findActiveCartByUser(user)
                 .orElseThrow(() -> new RuntimeException("No active cart found"));
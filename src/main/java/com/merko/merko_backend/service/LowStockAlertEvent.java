@@ -0,0 +1,54 @@
+package com.merko.merko_backend.service;
+
+/**
+ * Published asynchronously by LowStockMonitor when a tracked product falls to or below its
+ * low-stock threshold (ENTERED) or is restocked above it (CLEARED).
+ */
+public class LowStockAlertEvent {
+
+    public enum Type {
+        ENTERED,
+        CLEARED
+    }
+
+    private final Type type;
+    private final Integer productId;
+    private final Long supplierId;
+    private final String productName;
+    private final Integer stockQuantity;
+    private final Integer lowStockAlert;
+
+    public LowStockAlertEvent(Type type, Integer productId, Long supplierId, String productName,
+                              Integer stockQuantity, Integer lowStockAlert) {
+        this.type = type;
+        this.productId = productId;
+        this.supplierId = supplierId;
+        this.productName = productName;
+        this.stockQuantity = stockQuantity;
+        this.lowStockAlert = lowStockAlert;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public Long getSupplierId() {
+        return supplierId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public Integer getLowStockAlert() {
+        return lowStockAlert;
+    }
+}
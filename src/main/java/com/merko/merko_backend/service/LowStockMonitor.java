@@ -0,0 +1,177 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.dto.LowStockItemDTO;
+import com.merko.merko_backend.entity.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks, per supplier, the products at or below their low-stock threshold. Each product is
+ * re-evaluated when a ProductChangeEvent reports it (edit, order deduction, cancellation
+ * restore), so the catalog is never scanned after startup. Threshold crossings are queued
+ * and published as LowStockAlertEvent on a background thread.
+ */
+@Component
+public class LowStockMonitor implements CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockMonitor.class);
+
+    // trackInventory is free text from the product form; these values switch tracking off
+    private static final Set<String> UNTRACKED_VALUES = Set.of("false", "no", "0", "off");
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // supplierId -> productId -> low-stock entry
+    private final Map<Long, Map<Integer, LowStockItemDTO>> lowStock = new HashMap<>();
+    private final Map<Integer, Long> supplierOfLowProduct = new HashMap<>();
+
+    // Products changed while the startup scan is running, so the scan doesn't overwrite them
+    private final Set<Integer> changedDuringScan = new HashSet<>();
+    private volatile boolean ready;
+
+    private final BlockingQueue<LowStockAlertEvent> alerts;
+    private final AtomicLong droppedAlerts = new AtomicLong();
+    private final Thread dispatcher;
+
+    public LowStockMonitor(@Value("${inventory.low-stock.alert-queue-capacity:10000}") int queueCapacity) {
+        this.alerts = new LinkedBlockingQueue<>(queueCapacity);
+        this.dispatcher = new Thread(this::dispatchAlerts, "low-stock-alerts");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+    }
+
+    @Override
+    public synchronized void loadFromScan(List<Product> batch) {
+        for (Product product : batch) {
+            if (!changedDuringScan.contains(product.getId())) {
+                // Products already low at startup are state, not news: no alerts
+                evaluate(product, false);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void scanCompleted() {
+        changedDuringScan.clear();
+        ready = true;
+        logger.info("Low-stock monitor ready: {} products below threshold", supplierOfLowProduct.size());
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChange(ProductChangeEvent event) {
+        if (!ready) {
+            changedDuringScan.add(event.getProductId());
+        }
+        if (event.getProduct() == null) {
+            remove(event.getProductId());
+        } else {
+            evaluate(event.getProduct(), true);
+        }
+    }
+
+    public synchronized List<LowStockItemDTO> getLowStock(Long supplierId) {
+        Map<Integer, LowStockItemDTO> items = lowStock.get(supplierId);
+        if (items == null) {
+            return new ArrayList<>();
+        }
+        List<LowStockItemDTO> result = new ArrayList<>(items.values());
+        // Most urgent first: lowest stock relative to its threshold
+        result.sort(Comparator.comparingInt((LowStockItemDTO item) -> item.getStockQuantity() - item.getLowStockAlert())
+                .thenComparing(LowStockItemDTO::getProductId));
+        return result;
+    }
+
+    public long getDroppedAlerts() {
+        return droppedAlerts.get();
+    }
+
+    static boolean isTracked(Product product) {
+        String trackInventory = product.getTrackInventory();
+        return trackInventory == null || !UNTRACKED_VALUES.contains(trackInventory.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private void evaluate(Product product, boolean notify) {
+        boolean low = isTracked(product)
+                && product.getLowStockAlert() != null
+                && product.getStockQuantity() != null
+                && product.getStockQuantity() <= product.getLowStockAlert();
+
+        boolean wasLow = supplierOfLowProduct.containsKey(product.getId());
+        remove(product.getId());
+        if (low) {
+            lowStock.computeIfAbsent(product.getUserId(), id -> new HashMap<>())
+                    .put(product.getId(), new LowStockItemDTO(product.getId(), product.getProductName(),
+                            product.getSku(), product.getStockQuantity(), product.getLowStockAlert()));
+            supplierOfLowProduct.put(product.getId(), product.getUserId());
+        }
+
+        if (notify && low != wasLow) {
+            enqueue(new LowStockAlertEvent(low ? LowStockAlertEvent.Type.ENTERED : LowStockAlertEvent.Type.CLEARED,
+                    product.getId(), product.getUserId(), product.getProductName(),
+                    product.getStockQuantity(), product.getLowStockAlert()));
+        }
+    }
+
+    private void remove(Integer productId) {
+        Long supplierId = supplierOfLowProduct.remove(productId);
+        if (supplierId == null) {
+            return;
+        }
+        Map<Integer, LowStockItemDTO> items = lowStock.get(supplierId);
+        items.remove(productId);
+        if (items.isEmpty()) {
+            lowStock.remove(supplierId);
+        }
+    }
+
+    // Never blocks the writer: when the queue is full the alert is dropped and counted
+    private void enqueue(LowStockAlertEvent alert) {
+        if (!alerts.offer(alert)) {
+            droppedAlerts.incrementAndGet();
+            logger.warn("Low-stock alert queue full, dropped {} alert for product {}", alert.getType(), alert.getProductId());
+        }
+    }
+
+    private void dispatchAlerts() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                LowStockAlertEvent alert = alerts.take();
+                logger.info("Low stock {} for product {} (supplier {}): {} left, threshold {}",
+                        alert.getType(), alert.getProductId(), alert.getSupplierId(),
+                        alert.getStockQuantity(), alert.getLowStockAlert());
+                eventPublisher.publishEvent(alert);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                logger.error("Failed to dispatch low-stock alert", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.dto.ProductDTO;
+import com.merko.merko_backend.util.BoundedTtlCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of ProductDTO views for the merchant-facing catalog reads.
+ * Holds single products by id and active product lists by supplier id.
+ * Entries are invalidated by ProductChangeEvent, bounded in size and expire after a TTL.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    private final BoundedTtlCache<Integer, ProductDTO> products;
+    private final BoundedTtlCache<Long, List<ProductDTO>> supplierProducts;
+
+    // Bumped on every invalidation so a list loaded before a write is not cached after it
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductCatalogCache(@Value("${catalog.cache.max-products:10000}") int maxProducts,
+                               @Value("${catalog.cache.max-suppliers:500}") int maxSuppliers,
+                               @Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.products = new BoundedTtlCache<>(maxProducts, ttlSeconds * 1000);
+        this.supplierProducts = new BoundedTtlCache<>(maxSuppliers, ttlSeconds * 1000);
+    }
+
+    // Only returns the cached view if it was built from the same row version
+    public ProductDTO getProduct(Integer productId, LocalDateTime updatedAt) {
+        return products.get(productId, dto -> Objects.equals(dto.getUpdatedAt(), updatedAt));
+    }
+
+    public void putProduct(ProductDTO dto) {
+        products.put(dto.getId(), dto);
+    }
+
+    public List<ProductDTO> getSupplierProducts(Long supplierId) {
+        return supplierProducts.get(supplierId);
+    }
+
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    public void putSupplierProducts(Long supplierId, List<ProductDTO> dtos, long loadedAtGeneration) {
+        if (generation.get() == loadedAtGeneration) {
+            supplierProducts.put(supplierId, List.copyOf(dtos));
+        }
+    }
+
+    // Runs after commit when the change happened inside a transaction, immediately otherwise
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        generation.incrementAndGet();
+        products.invalidate(event.getProductId());
+        if (event.getSupplierId() != null) {
+            supplierProducts.invalidate(event.getSupplierId());
+        }
+        logger.debug("Invalidated catalog cache for product {} (supplier {}) after {}",
+                event.getProductId(), event.getSupplierId(), event.getType());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productEntries", products.size());
+        stats.put("productHits", products.getHits());
+        stats.put("productMisses", products.getMisses());
+        stats.put("productEvictions", products.getEvictions());
+        stats.put("supplierEntries", supplierProducts.size());
+        stats.put("supplierHits", supplierProducts.getHits());
+        stats.put("supplierMisses", supplierProducts.getMisses());
+        stats.put("supplierEvictions", supplierProducts.getEvictions());
+        return stats;
+    }
+}
@@ -0,0 +1,63 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+
+/**
+ * Published after a product is created, updated, deleted or has its stock changed.
+ * Catalog read models (caches, indexes) listen for it to stay in sync with product writes.
+ */
+public class ProductChangeEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final Integer productId;
+    private final Long supplierId;
+
+    // Product state after the change; null for DELETED
+    private final Product product;
+
+    public ProductChangeEvent(Type type, Integer productId, Long supplierId, Product product) {
+        this.type = type;
+        this.productId = productId;
+        this.supplierId = supplierId;
+        this.product = product;
+    }
+
+    public static ProductChangeEvent created(Product product) {
+        return new ProductChangeEvent(Type.CREATED, product.getId(), product.getUserId(), product);
+    }
+
+    public static ProductChangeEvent updated(Product product) {
+        return new ProductChangeEvent(Type.UPDATED, product.getId(), product.getUserId(), product);
+    }
+
+    public static ProductChangeEvent stockChanged(Product product) {
+        return new ProductChangeEvent(Type.STOCK_CHANGED, product.getId(), product.getUserId(), product);
+    }
+
+    public static ProductChangeEvent deleted(Integer productId, Long supplierId) {
+        return new ProductChangeEvent(Type.DELETED, productId, supplierId, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public Long getSupplierId() {
+        return supplierId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+}
@@ -0,0 +1,118 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.ProductChange;
+import com.merko.merko_backend.repository.ProductChangeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records every ProductChangeEvent in the product_changes table, which backs the delta-sync
+ * endpoint. The rows are written in the same transaction as the product write that published
+ * the events (one JDBC batch just before it commits), so a change is logged if and only if the
+ * product write commits. Old entries are pruned after the retention period.
+ */
+@Component
+public class ProductChangeLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeLog.class);
+
+    private static final String INSERT_SQL = "INSERT INTO product_changes "
+            + "(product_id, supplier_id, change_type, changed_at) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalog.changes.retention-days:30}")
+    private int retentionDays;
+
+    /*
+     * Held from a transaction's change insert until it completes, so sequence numbers are
+     * committed in increasing order and a reader never skips a lower seq that commits later.
+     * Only the final insert and commit are serialized, not the product write itself. Row locks
+     * are all taken before it: InnoDB cannot see this lock, so a holder waiting on a row lock
+     * would stall every product commit until the lock wait timed out.
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    // Runs synchronously inside the publisher's transaction; the rows are buffered until it is about to commit
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        ProductChange change = new ProductChange(null, event.getProductId(), event.getSupplierId(),
+                event.getType().name(), LocalDateTime.now());
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            appendLock.lock();
+            try {
+                insert(List.of(change));
+            } finally {
+                appendLock.unlock();
+            }
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<ProductChange> pending = (List<ProductChange>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<ProductChange> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Deferred entity writes would otherwise lock their rows in the commit, under appendLock
+                    entityManager.flush();
+                    appendLock.lock();
+                    insert(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProductChangeLog.this);
+                    if (appendLock.isHeldByCurrentThread()) {
+                        appendLock.unlock();
+                    }
+                }
+            });
+            pending = buffer;
+        }
+        pending.add(change);
+    }
+
+    private void insert(List<ProductChange> changes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, changes, changes.size(), (ps, change) -> {
+            ps.setInt(1, change.getProductId());
+            ps.setObject(2, change.getSupplierId(), Types.BIGINT);
+            ps.setString(3, change.getChangeType());
+            ps.setTimestamp(4, Timestamp.valueOf(change.getChangedAt()));
+        });
+        logger.debug("Recorded {} product changes", changes.size());
+    }
+
+    @Scheduled(cron = "${catalog.changes.prune-cron:0 30 3 * * *}")
+    public void prune() {
+        int removed = productChangeRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        logger.info("Pruned {} product change log entries older than {} days", removed, retentionDays);
+    }
+}
@@ -0,0 +1,331 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facet postings for Active products: for every facet value, a compressed bitmap of the
+ * product ids carrying it, plus a count maintained on every product change.
+ * Filtered listings and facet counts are answered by intersecting bitmaps in memory.
+ */
+@Component
+public class ProductFacetIndex implements CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String COUNTRY_OF_ORIGIN = "countryOfOrigin";
+    public static final String PRICE_BAND = "priceBand";
+
+    public static final List<String> DIMENSIONS = List.of(CATEGORY, BRAND, COUNTRY_OF_ORIGIN, PRICE_BAND);
+
+    // Upper bounds (exclusive) of the price bands, in catalog currency
+    private static final int[] PRICE_BAND_LIMITS = {10, 50, 100, 500};
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // dimension -> facet value -> product ids
+    private final Map<String, Map<String, RoaringBitmap>> postings = new HashMap<>();
+    private final Map<String, Map<String, Integer>> counts = new HashMap<>();
+    private final RoaringBitmap activeProducts = new RoaringBitmap();
+    private final Map<Integer, FacetedProduct> products = new HashMap<>();
+
+    // Products changed or deleted while the startup scan is running, so the scan doesn't overwrite them
+    private final Set<Integer> changedDuringScan = new HashSet<>();
+    private volatile boolean ready;
+
+    public ProductFacetIndex() {
+        for (String dimension : DIMENSIONS) {
+            postings.put(dimension, new HashMap<>());
+            counts.put(dimension, new TreeMap<>());
+        }
+    }
+
+    @Override
+    public void loadFromScan(List<Product> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : batch) {
+                if (!changedDuringScan.contains(product.getId())) {
+                    remove(product.getId());
+                    add(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void scanCompleted() {
+        lock.writeLock().lock();
+        try {
+            changedDuringScan.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product facet index ready: {} active products", activeProducts.getCardinality());
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                changedDuringScan.add(event.getProductId());
+            }
+            remove(event.getProductId());
+            if (event.getProduct() != null) {
+                add(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts per facet value for the products matching the filters. Each dimension is counted
+     * against the filters of the other dimensions only, so selecting one brand still shows
+     * how many products the other brands have.
+     */
+    public FacetCounts facetCounts(Map<String, Set<String>> filters) {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<String, Integer>> result = new LinkedHashMap<>();
+            for (String dimension : DIMENSIONS) {
+                if (!hasOtherFilters(filters, dimension)) {
+                    // Unfiltered counts are maintained incrementally
+                    result.put(dimension, new LinkedHashMap<>(counts.get(dimension)));
+                    continue;
+                }
+                RoaringBitmap others = match(filters, dimension);
+                Map<String, Integer> dimensionCounts = new LinkedHashMap<>();
+                for (Map.Entry<String, Integer> entry : counts.get(dimension).entrySet()) {
+                    int count = RoaringBitmap.andCardinality(postings.get(dimension).get(entry.getKey()), others);
+                    if (count > 0) {
+                        dimensionCounts.put(entry.getKey(), count);
+                    }
+                }
+                result.put(dimension, dimensionCounts);
+            }
+            return new FacetCounts(match(filters, null).getCardinality(), result, ready);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Matching products in descending id order, starting below beforeId when given
+    public FilterResult filter(Map<String, Set<String>> filters, Integer beforeId, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = match(filters, null);
+            List<ProductRepository.CatalogKey> keys = new ArrayList<>();
+            long next;
+            if (matches.isEmpty() || (beforeId != null && beforeId <= 1)) {
+                next = -1;
+            } else {
+                next = beforeId == null ? matches.last() : matches.previousValue(beforeId - 1);
+            }
+            while (next >= 0 && keys.size() <= limit) {
+                int productId = (int) next;
+                keys.add(new FacetKey(productId, products.get(productId).updatedAt));
+                next = productId == 0 ? -1 : matches.previousValue(productId - 1);
+            }
+            return new FilterResult(keys, matches.getCardinality(), ready);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String priceBand(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        int lower = 0;
+        for (int limit : PRICE_BAND_LIMITS) {
+            if (price.compareTo(BigDecimal.valueOf(limit)) < 0) {
+                return lower + "-" + limit;
+            }
+            lower = limit;
+        }
+        return lower + "+";
+    }
+
+    // Values within a dimension are OR-ed, dimensions are AND-ed; skipDimension is left out
+    private RoaringBitmap match(Map<String, Set<String>> filters, String skipDimension) {
+        RoaringBitmap result = activeProducts.clone();
+        for (String dimension : DIMENSIONS) {
+            Set<String> values = filters.get(dimension);
+            if (dimension.equals(skipDimension) || values == null || values.isEmpty()) {
+                continue;
+            }
+            RoaringBitmap union = new RoaringBitmap();
+            for (String value : values) {
+                RoaringBitmap ids = postings.get(dimension).get(value);
+                if (ids != null) {
+                    union.or(ids);
+                }
+            }
+            result.and(union);
+        }
+        return result;
+    }
+
+    private static boolean hasOtherFilters(Map<String, Set<String>> filters, String dimension) {
+        for (Map.Entry<String, Set<String>> entry : filters.entrySet()) {
+            if (!entry.getKey().equals(dimension) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(Product product) {
+        // Only active products are browsable, so only they are faceted
+        if (!"Active".equals(product.getStatus())) {
+            return;
+        }
+
+        String[] values = {
+                normalize(product.getCategory()),
+                normalize(product.getBrand()),
+                normalize(product.getCountryOfOrigin()),
+                priceBand(product.getPrice())
+        };
+        int productId = product.getId();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                String dimension = DIMENSIONS.get(i);
+                postings.get(dimension).computeIfAbsent(values[i], v -> new RoaringBitmap()).add(productId);
+                counts.get(dimension).merge(values[i], 1, Integer::sum);
+            }
+        }
+        activeProducts.add(productId);
+        products.put(productId, new FacetedProduct(values, product.getUpdatedAt()));
+    }
+
+    private void remove(Integer productId) {
+        FacetedProduct existing = products.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (int i = 0; i < existing.values.length; i++) {
+            String value = existing.values[i];
+            if (value == null) {
+                continue;
+            }
+            String dimension = DIMENSIONS.get(i);
+            RoaringBitmap ids = postings.get(dimension).get(value);
+            ids.remove(productId);
+            if (ids.isEmpty()) {
+                postings.get(dimension).remove(value);
+            }
+            counts.get(dimension).computeIfPresent(value, (v, count) -> count > 1 ? count - 1 : null);
+        }
+        activeProducts.remove(productId);
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private static final class FacetedProduct {
+        private final String[] values;
+        private final LocalDateTime updatedAt;
+
+        private FacetedProduct(String[] values, LocalDateTime updatedAt) {
+            this.values = values;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private static final class FacetKey implements ProductRepository.CatalogKey {
+        private final Integer id;
+        private final LocalDateTime updatedAt;
+
+        private FacetKey(Integer id, LocalDateTime updatedAt) {
+            this.id = id;
+            this.updatedAt = updatedAt;
+        }
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+
+    public static final class FacetCounts {
+        private final int totalMatches;
+        private final Map<String, Map<String, Integer>> facets;
+        private final boolean indexReady;
+
+        private FacetCounts(int totalMatches, Map<String, Map<String, Integer>> facets, boolean indexReady) {
+            this.totalMatches = totalMatches;
+            this.facets = facets;
+            this.indexReady = indexReady;
+        }
+
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+
+        public Map<String, Map<String, Integer>> getFacets() {
+            return facets;
+        }
+
+        public boolean isIndexReady() {
+            return indexReady;
+        }
+    }
+
+    public static final class FilterResult {
+        // Up to limit + 1 keys, the extra one signalling another page
+        private final List<ProductRepository.CatalogKey> keys;
+        private final int totalMatches;
+        private final boolean indexReady;
+
+        private FilterResult(List<ProductRepository.CatalogKey> keys, int totalMatches, boolean indexReady) {
+            this.keys = keys;
+            this.totalMatches = totalMatches;
+            this.indexReady = indexReady;
+        }
+
+        public List<ProductRepository.CatalogKey> getKeys() {
+            return keys;
+        }
+
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+
+        public boolean isIndexReady() {
+            return indexReady;
+        }
+    }
+}
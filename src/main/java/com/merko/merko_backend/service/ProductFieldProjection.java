@@ -0,0 +1,133 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.ProductImage;
+import com.merko.merko_backend.repository.ProductImageRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Sparse fieldsets for product listings: a "fields=" list selects which product columns the
+ * JPQL query reads and which keys the response contains. The virtual fields imageUrl and
+ * thumbnailUrl carry the product's first image and cost one batched image query.
+ */
+@Component
+public class ProductFieldProjection {
+
+    public static final String IMAGE_URL = "imageUrl";
+    public static final String THUMBNAIL_URL = "thumbnailUrl";
+
+    private static final int IN_BATCH_SIZE = 1000;
+
+    // Selectable product fields, in the order ProductDTO declares them
+    private static final List<String> COLUMNS = List.of(
+            "id", "productName", "description", "sku", "category", "price", "cost", "stockQuantity",
+            "weight", "status", "barcode", "lowStockAlert", "trackInventory", "comparePrice", "profitMargin",
+            "features", "careInstructions", "brand", "countryOfOrigin", "createdAt", "updatedAt",
+            "supplierCompanyName");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    // Validates a comma-separated field list; id is always included and comes first
+    public List<String> parse(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!COLUMNS.contains(name) && !IMAGE_URL.equals(name) && !THUMBNAIL_URL.equals(name)) {
+                throw new RuntimeException("Unknown product field: " + name);
+            }
+            selected.add(name);
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Selects only the requested columns of the products matching the JPQL condition.
+     * {@code where} and {@code orderBy} refer to the product as "p" and must not contain user input.
+     */
+    public List<Map<String, Object>> query(List<String> fields, String where, Map<String, Object> params,
+                                           String orderBy, Integer maxResults) {
+        List<String> columns = new ArrayList<>();
+        for (String field : fields) {
+            if (COLUMNS.contains(field)) {
+                columns.add(field);
+            }
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            jpql.append(i > 0 ? ", " : "").append("p.").append(columns.get(i));
+        }
+        jpql.append(" FROM Product p");
+        if (where != null) {
+            jpql.append(" WHERE ").append(where);
+        }
+        if (orderBy != null) {
+            jpql.append(" ORDER BY ").append(orderBy);
+        }
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        if (maxResults != null) {
+            query.setMaxResults(maxResults);
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Object[] values : query.getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                row.put(columns.get(i), values[i]);
+            }
+            rows.add(row);
+        }
+
+        addImageFields(fields, rows);
+        return rows;
+    }
+
+    private void addImageFields(List<String> fields, List<Map<String, Object>> rows) {
+        boolean imageUrl = fields.contains(IMAGE_URL);
+        boolean thumbnailUrl = fields.contains(THUMBNAIL_URL);
+        if ((!imageUrl && !thumbnailUrl) || rows.isEmpty()) {
+            return;
+        }
+
+        List<Integer> productIds = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            productIds.add((Integer) row.get("id"));
+        }
+        Map<Integer, ProductImage> firstImages = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += IN_BATCH_SIZE) {
+            List<Integer> chunk = productIds.subList(from, Math.min(from + IN_BATCH_SIZE, productIds.size()));
+            for (ProductImage image : productImageRepository.findFirstImagesByProductIds(chunk)) {
+                firstImages.put(image.getProduct().getId(), image);
+            }
+        }
+
+        for (Map<String, Object> row : rows) {
+            ProductImage image = firstImages.get((Integer) row.get("id"));
+            if (imageUrl) {
+                row.put(IMAGE_URL, image == null ? null : "/uploads/" + storedFileName(image.getImageUrl()));
+            }
+            if (thumbnailUrl) {
+                row.put(THUMBNAIL_URL, image == null ? null : ProductImageRenditionService.thumbnailUrl(image));
+            }
+        }
+    }
+
+    private static String storedFileName(String imageUrl) {
+        return imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,391 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.ProductImage;
+import com.merko.merko_backend.repository.ProductImageRepository;
+import com.merko.merko_backend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Produces fixed-size thumbnail and medium JPEG renditions of product images in the background,
+ * so listings can reference small files instead of the original uploads.
+ * Work runs on a bounded pool; when it is full, images stay PENDING and are picked up by the
+ * sweeper thread, which also backfills images uploaded before renditions existed.
+ */
+@Component
+public class ProductImageRenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageRenditionService.class);
+
+    public static final String THUMBNAIL_DIR = "thumb";
+    public static final String MEDIUM_DIR = "medium";
+    private static final String RENDITION_SUFFIX = ".jpg";
+
+    private static final int SWEEP_BATCH_SIZE = 200;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${images.renditions.thumbnail-size:240}")
+    private int thumbnailSize;
+
+    @Value("${images.renditions.medium-size:800}")
+    private int mediumSize;
+
+    @Value("${images.renditions.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    private final ThreadPoolExecutor executor;
+
+    // One permit per pool thread and queue slot: uploads never wait for one, the sweeper does
+    private final Semaphore capacity;
+    private final Semaphore sweepRequests = new Semaphore(0);
+
+    // Image ids queued or being rendered, so the sweeper doesn't submit them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    public ProductImageRenditionService(@Value("${images.renditions.threads:2}") int threads,
+                                        @Value("${images.renditions.queue-capacity:100}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-renditions");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.capacity = new Semaphore(threads + queueCapacity);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSweeper() {
+        Thread sweeper = new Thread(this::sweepLoop, "image-rendition-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+        // Backfill anything left pending by a previous run
+        sweepRequests.release();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Queues renditions for newly uploaded images once the product write has committed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getProduct() == null || !Hibernate.isInitialized(event.getProduct().getImages())) {
+            return;
+        }
+
+        List<ProductImage> pending = new ArrayList<>();
+        for (ProductImage image : event.getProduct().getImages()) {
+            if (image.getId() != null && image.getRenditionStatus() == ProductImage.RenditionStatus.PENDING) {
+                pending.add(image);
+            }
+        }
+        if (!pending.isEmpty() && !trySubmit(event.getProductId(), pending)) {
+            deferred.addAndGet(pending.size());
+            sweepRequests.release();
+            logger.info("Rendition queue full, deferred {} images of product {}", pending.size(), event.getProductId());
+        }
+    }
+
+    public static String thumbnailUrl(ProductImage image) {
+        return renditionUrl(image, THUMBNAIL_DIR);
+    }
+
+    public static String mediumUrl(ProductImage image) {
+        return renditionUrl(image, MEDIUM_DIR);
+    }
+
+    // True when both renditions of a stored file already exist, e.g. for a re-uploaded image
+    public boolean hasRenditions(String imageUrl) {
+        String fileName = storedFileName(imageUrl);
+        Path uploadPath = Paths.get(uploadDir);
+        return Files.exists(uploadPath.resolve(THUMBNAIL_DIR).resolve(fileName + RENDITION_SUFFIX))
+                && Files.exists(uploadPath.resolve(MEDIUM_DIR).resolve(fileName + RENDITION_SUFFIX));
+    }
+
+    public void deleteRenditions(String imageUrl) {
+        String fileName = storedFileName(imageUrl);
+        Path uploadPath = Paths.get(uploadDir);
+        try {
+            Files.deleteIfExists(uploadPath.resolve(THUMBNAIL_DIR).resolve(fileName + RENDITION_SUFFIX));
+            Files.deleteIfExists(uploadPath.resolve(MEDIUM_DIR).resolve(fileName + RENDITION_SUFFIX));
+        } catch (IOException ex) {
+            logger.warn("Failed to delete renditions of {}: {}", fileName, ex.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", executor.getQueue().size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("rendered", rendered.get());
+        stats.put("failed", failed.get());
+        stats.put("deferred", deferred.get());
+        return stats;
+    }
+
+    // Renditions are served from /uploads/<dir>/<stored file>.jpg; until they exist the original is used
+    private static String renditionUrl(ProductImage image, String dir) {
+        String fileName = storedFileName(image.getImageUrl());
+        if (image.getRenditionStatus() == ProductImage.RenditionStatus.READY) {
+            return "/uploads/" + dir + "/" + fileName + RENDITION_SUFFIX;
+        }
+        return "/uploads/" + fileName;
+    }
+
+    private static String storedFileName(String imageUrl) {
+        return imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+    }
+
+    private boolean trySubmit(Integer productId, List<ProductImage> images) {
+        if (!capacity.tryAcquire()) {
+            return false;
+        }
+        submit(productId, images);
+        return true;
+    }
+
+    private void submit(Integer productId, List<ProductImage> images) {
+        Map<Long, String> files = new LinkedHashMap<>();
+        for (ProductImage image : images) {
+            if (inFlight.add(image.getId())) {
+                files.put(image.getId(), image.getImageUrl());
+            }
+        }
+        if (files.isEmpty()) {
+            capacity.release();
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    renderProduct(productId, files);
+                } finally {
+                    inFlight.removeAll(files.keySet());
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.removeAll(files.keySet());
+            capacity.release();
+            logger.warn("Rendition executor rejected product {}: {}", productId, ex.getMessage());
+        }
+    }
+
+    private void sweepLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                sweepRequests.acquire();
+                sweepRequests.drainPermits();
+                sweep();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                logger.error("Rendition sweep failed", ex);
+            }
+        }
+    }
+
+    // Submits every PENDING or never-rendered image, blocking while the pool is full
+    private void sweep() throws InterruptedException {
+        long lastId = 0;
+        int submitted = 0;
+        List<ProductImage> batch;
+        do {
+            batch = productImageRepository.findPendingRenditions(lastId, PageRequest.of(0, SWEEP_BATCH_SIZE));
+
+            // Group consecutive images of the same product into one job
+            Map<Integer, List<ProductImage>> byProduct = new LinkedHashMap<>();
+            for (ProductImage image : batch) {
+                if (!inFlight.contains(image.getId())) {
+                    byProduct.computeIfAbsent(image.getProduct().getId(), id -> new ArrayList<>()).add(image);
+                }
+            }
+            for (Map.Entry<Integer, List<ProductImage>> entry : byProduct.entrySet()) {
+                capacity.acquire();
+                submit(entry.getKey(), entry.getValue());
+                submitted += entry.getValue().size();
+            }
+
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == SWEEP_BATCH_SIZE);
+
+        if (submitted > 0) {
+            logger.info("Rendition sweep queued {} images", submitted);
+        }
+    }
+
+    private void renderProduct(Integer productId, Map<Long, String> files) {
+        List<Long> ready = new ArrayList<>();
+        List<Long> broken = new ArrayList<>();
+        for (Map.Entry<Long, String> file : files.entrySet()) {
+            try {
+                renderImage(storedFileName(file.getValue()));
+                ready.add(file.getKey());
+            } catch (Exception ex) {
+                logger.warn("Failed to render image {} of product {}: {}", file.getValue(), productId, ex.getMessage());
+                broken.add(file.getKey());
+            }
+        }
+
+        if (!ready.isEmpty()) {
+            // Cached product views still point at the originals; the event's change-log row commits with the status
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                productImageRepository.updateRenditionStatus(ready, ProductImage.RenditionStatus.READY);
+                productRepository.findById(productId)
+                        .ifPresent(product -> eventPublisher.publishEvent(ProductChangeEvent.updated(product)));
+            });
+            rendered.addAndGet(ready.size());
+        }
+        if (!broken.isEmpty()) {
+            productImageRepository.updateRenditionStatus(broken, ProductImage.RenditionStatus.FAILED);
+            failed.addAndGet(broken.size());
+        }
+    }
+
+    private void renderImage(String fileName) throws IOException {
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path source = uploadPath.resolve(fileName);
+
+        BufferedImage decoded = decode(source, mediumSize);
+        BufferedImage medium = scaleToFit(decoded, mediumSize);
+        writeJpeg(medium, uploadPath.resolve(MEDIUM_DIR), fileName + RENDITION_SUFFIX);
+        writeJpeg(scaleToFit(medium, thumbnailSize), uploadPath.resolve(THUMBNAIL_DIR), fileName + RENDITION_SUFFIX);
+    }
+
+    // Decodes with source subsampling so large photos aren't fully expanded in memory
+    private BufferedImage decode(Path source, int targetSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                throw new IOException("Image file not found");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+
+                // Keep at least twice the target resolution for a clean final downscale
+                int subsampling = Math.max(1, longestSide / (targetSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToFit(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        // Halve in steps: a single bilinear pass over a large ratio looks jagged
+        BufferedImage current = source;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            if (scale == 1.0) {
+                currentWidth = targetWidth;
+                currentHeight = targetHeight;
+            }
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                // JPEG has no alpha, so transparent PNG areas become white
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, currentWidth, currentHeight);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    // Written to a temp file and moved into place so a half-written rendition is never served
+    private void writeJpeg(BufferedImage image, Path dir, String fileName) throws IOException {
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, "rendition", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, dir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
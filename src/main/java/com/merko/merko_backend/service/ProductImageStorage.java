@@ -0,0 +1,258 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.repository.ProductImageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Content-addressed storage for product images. Files are named by the SHA-256 of their
+ * bytes, so identical uploads are stored once; product_images rows are the references,
+ * and a file is only deleted when no row points at it any more.
+ * The images of one request are written in parallel and validated while they stream.
+ */
+@Component
+public class ProductImageStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageStorage.class);
+
+    private static final int MAX_EXTENSION_LENGTH = 8;
+    private static final int MAX_TRACKED_UPLOADS = 10000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductImageRenditionService renditionService;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    // A file stored this recently may be about to get its first reference, so release() leaves it alone
+    @Value("${images.storage.release-grace-seconds:600}")
+    private long releaseGraceSeconds;
+
+    @Value("${images.upload.max-bytes:10485760}")
+    private long maxImageBytes;
+
+    // Stored file name -> last time an upload resolved to it
+    private final Map<String, Long> recentlyStored = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor uploadExecutor;
+
+    public ProductImageStorage(@Value("${images.upload.threads:4}") int threads,
+                               @Value("${images.upload.queue-capacity:64}") int queueCapacity) {
+        // When saturated, the request thread writes its own images instead of queueing without bound
+        this.uploadExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-uploads");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    /**
+     * Stores several uploads concurrently and returns their file names in the same order,
+     * so a request takes about as long as its largest image. Fails if any image is rejected.
+     */
+    public List<String> storeAll(List<MultipartFile> files, List<String> originalFilenames) throws IOException {
+        if (files.size() == 1) {
+            return List.of(store(files.get(0), originalFilenames.get(0)));
+        }
+
+        List<Future<String>> pending = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String originalFilename = originalFilenames.get(i);
+            pending.add(uploadExecutor.submit(() -> store(file, originalFilename)));
+        }
+
+        List<String> fileNames = new ArrayList<>(files.size());
+        try {
+            for (Future<String> future : pending) {
+                fileNames.add(future.get());
+            }
+            return fileNames;
+        } catch (ExecutionException ex) {
+            // Files already written for this request are unreferenced and left to orphan cleanup
+            pending.forEach(future -> future.cancel(true));
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException ex) {
+            pending.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while storing images");
+        }
+    }
+
+    /**
+     * Streams the upload to a temp file while hashing and validating it, then moves it to
+     * {@code <sha256>.<ext>}. Returns the stored file name; if that content is already stored
+     * the copy is discarded. Oversized or non-image uploads are rejected as soon as detected.
+     */
+    public String store(MultipartFile file, String originalFilename) throws IOException {
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Files.createDirectories(uploadPath);
+
+        Path temp = Files.createTempFile(uploadPath, "upload", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                copyValidated(in, out, originalFilename);
+            }
+
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extension(originalFilename);
+            Path target = uploadPath.resolve(fileName);
+            rememberStored(fileName);
+
+            if (Files.exists(target)) {
+                logger.info("Image {} already stored as {}", originalFilename, fileName);
+                return fileName;
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException ex) {
+                // A concurrent upload of the same bytes won the race
+                logger.debug("Image {} stored concurrently as {}", originalFilename, fileName);
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Drops one reference to a stored file. Call after the product_images row is deleted;
+     * the file and its renditions are removed once no row references it.
+     */
+    public void release(String imageUrl) {
+        String fileName = imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+        try {
+            if (productImageRepository.countByImageUrl(fileName) > 0) {
+                logger.debug("Image file {} is still referenced, keeping it", fileName);
+                return;
+            }
+            if (isRecentlyStored(fileName)) {
+                logger.info("Image file {} was uploaded again moments ago, keeping it", fileName);
+                return;
+            }
+            recentlyStored.remove(fileName);
+
+            Files.deleteIfExists(Paths.get(uploadDir).resolve(fileName));
+            renditionService.deleteRenditions(fileName);
+            logger.info("Deleted image file: {}", fileName);
+        } catch (Exception e) {
+            logger.warn("Failed to delete image file {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    // Copies the stream, checking the leading bytes are an image format and the size stays under the limit
+    private void copyValidated(InputStream in, OutputStream out, String originalFilename) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        boolean typeChecked = false;
+        int read;
+        while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+            if (!typeChecked) {
+                if (!isSupportedImage(buffer, read)) {
+                    throw new RuntimeException("File '" + originalFilename + "' is not a supported image (JPEG, PNG, GIF or WebP)");
+                }
+                typeChecked = true;
+            }
+            total += read;
+            if (total > maxImageBytes) {
+                throw new RuntimeException("Image '" + originalFilename + "' exceeds the maximum size of "
+                        + (maxImageBytes / (1024 * 1024)) + "MB");
+            }
+            out.write(buffer, 0, read);
+        }
+        if (!typeChecked) {
+            throw new RuntimeException("File '" + originalFilename + "' is empty");
+        }
+    }
+
+    // Magic numbers of the formats browsers display
+    private static boolean isSupportedImage(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return true; // JPEG
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return true; // PNG
+        }
+        if (length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return true; // GIF
+        }
+        return length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P'; // WebP
+    }
+
+    // True while a fresh upload of this file may still be waiting for its product_images row
+    public boolean isRecentlyStored(String fileName) {
+        Long storedAt = recentlyStored.get(fileName);
+        return storedAt != null && System.currentTimeMillis() - storedAt < releaseGraceSeconds * 1000;
+    }
+
+    private void rememberStored(String fileName) {
+        long now = System.currentTimeMillis();
+        if (recentlyStored.size() >= MAX_TRACKED_UPLOADS) {
+            recentlyStored.values().removeIf(storedAt -> now - storedAt >= releaseGraceSeconds * 1000);
+        }
+        recentlyStored.put(fileName, now);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    // Lower-cased extension of the original name, kept so the file is served with the right type
+    private static String extension(String filename) {
+        if (filename == null) {
+            return "";
+        }
+        int lastDot = filename.lastIndexOf('.');
+        if (lastDot < 0 || filename.length() - lastDot > MAX_EXTENSION_LENGTH + 1) {
+            return "";
+        }
+        String extension = filename.substring(lastDot).toLowerCase(Locale.ROOT);
+        return extension.matches("\\.[a-z0-9]+") ? extension : "";
+    }
+}
@@ -0,0 +1,325 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.dto.ProductImportErrorDTO;
+import com.merko.merko_backend.dto.ProductImportResultDTO;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.StockMovement;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import com.merko.merko_backend.util.CsvReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Bulk product import from CSV. SKUs are validated against the supplier's existing set,
+ * loaded with one query, and valid rows are inserted with JDBC batches instead of one
+ * JPA insert per product.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO products (user_id, supplier_company_name, product_name, "
+            + "description, sku, category, price, cost, stock_quantity, weight, status, barcode, low_stock_alert, "
+            + "track_inventory, compare_price, profit_margin, features, care_instructions, brand, country_of_origin, "
+            + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Accepted header names, compared lower-cased with spaces, dashes and underscores removed
+    private static final Map<String, String> COLUMN_ALIASES = Map.ofEntries(
+            Map.entry("productname", "productName"),
+            Map.entry("name", "productName"),
+            Map.entry("description", "description"),
+            Map.entry("sku", "sku"),
+            Map.entry("category", "category"),
+            Map.entry("price", "price"),
+            Map.entry("cost", "cost"),
+            Map.entry("stockquantity", "stockQuantity"),
+            Map.entry("stock", "stockQuantity"),
+            Map.entry("weight", "weight"),
+            Map.entry("status", "status"),
+            Map.entry("barcode", "barcode"),
+            Map.entry("lowstockalert", "lowStockAlert"),
+            Map.entry("trackinventory", "trackInventory"),
+            Map.entry("compareprice", "comparePrice"),
+            Map.entry("profitmargin", "profitMargin"),
+            Map.entry("features", "features"),
+            Map.entry("careinstructions", "careInstructions"),
+            Map.entry("brand", "brand"),
+            Map.entry("countryoforigin", "countryOfOrigin")
+    );
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    public ProductImportResultDTO importCsv(MultipartFile file, String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (!user.getRole().toString().equals("SUPPLIER")) {
+            throw new RuntimeException("Only suppliers can import products");
+        }
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("CSV file is required");
+        }
+
+        long started = System.currentTimeMillis();
+        logger.info("Importing products from {} for user: {}", file.getOriginalFilename(), email);
+
+        // One query for every SKU the supplier already uses; new SKUs are added as rows are accepted
+        Set<String> knownSkus = new HashSet<>(productRepository.findSkusByUserId(user.getId()));
+
+        ImportRun run = new ImportRun(user);
+        try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            CsvReader csv = new CsvReader(reader);
+            Map<String, Integer> columns = readHeader(csv.next());
+
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                run.totalRows++;
+                Product product;
+                try {
+                    product = toProduct(record, columns, user);
+                } catch (RuntimeException ex) {
+                    run.fail(csv.getRecordLine(), value(record, columns, "sku"), ex.getMessage());
+                    continue;
+                }
+
+                if (!knownSkus.add(product.getSku())) {
+                    run.fail(csv.getRecordLine(), product.getSku(), "SKU '" + product.getSku() + "' is already in use");
+                    continue;
+                }
+
+                run.pending.add(product);
+                run.pendingLines.add(csv.getRecordLine());
+                if (run.pending.size() >= INSERT_BATCH_SIZE) {
+                    flush(run);
+                }
+            }
+            flush(run);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Error reading product import file", ex);
+            throw new RuntimeException("Failed to read CSV file: " + ex.getMessage());
+        }
+
+        long duration = System.currentTimeMillis() - started;
+        logger.info("Product import for {} finished: {} rows, {} imported, {} failed in {} ms",
+                email, run.totalRows, run.imported, run.failed, duration);
+
+        return new ProductImportResultDTO(run.totalRows, run.imported, run.failed,
+                run.errors, run.failed > run.errors.size(), duration);
+    }
+
+    private Map<String, Integer> readHeader(List<String> header) {
+        if (header == null) {
+            throw new RuntimeException("CSV file is empty");
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            // Excel writes a byte order mark before the first header
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            String field = COLUMN_ALIASES.get(name.toLowerCase(Locale.ROOT).replaceAll("[\\s_-]", ""));
+            if (field != null) {
+                columns.putIfAbsent(field, i);
+            }
+        }
+
+        if (!columns.containsKey("productName") || !columns.containsKey("sku")) {
+            throw new RuntimeException("CSV header must include productName and sku columns");
+        }
+        return columns;
+    }
+
+    private Product toProduct(List<String> record, Map<String, Integer> columns, User user) {
+        String productName = value(record, columns, "productName");
+        String sku = value(record, columns, "sku");
+        if (productName == null) {
+            throw new RuntimeException("productName is required");
+        }
+        if (sku == null) {
+            throw new RuntimeException("sku is required");
+        }
+
+        Product product = new Product();
+        product.setUserId(user.getId());
+        product.setSupplierCompanyName(user.getCompanyName());
+        product.setProductName(productName);
+        product.setSku(sku);
+        product.setDescription(value(record, columns, "description"));
+        product.setCategory(value(record, columns, "category"));
+        product.setPrice(decimal(record, columns, "price"));
+        product.setCost(decimal(record, columns, "cost"));
+        product.setStockQuantity(integer(record, columns, "stockQuantity"));
+        product.setWeight(decimal(record, columns, "weight"));
+        product.setBarcode(value(record, columns, "barcode"));
+        product.setLowStockAlert(integer(record, columns, "lowStockAlert"));
+        product.setTrackInventory(value(record, columns, "trackInventory"));
+        product.setComparePrice(decimal(record, columns, "comparePrice"));
+        product.setProfitMargin(decimal(record, columns, "profitMargin"));
+        product.setFeatures(value(record, columns, "features"));
+        product.setCareInstructions(value(record, columns, "careInstructions"));
+        product.setBrand(value(record, columns, "brand"));
+        product.setCountryOfOrigin(value(record, columns, "countryOfOrigin"));
+
+        String status = value(record, columns, "status");
+        product.setStatus(status != null ? status : "Active");
+        return product;
+    }
+
+    // Inserts the pending rows in one JDBC batch and publishes a change event per new product
+    private void flush(ImportRun run) {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+
+        List<Product> batch = run.pending;
+        List<Integer> lines = run.pendingLines;
+        run.pending = new ArrayList<>();
+        run.pendingLines = new ArrayList<>();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, product) -> {
+                    ps.setLong(1, product.getUserId());
+                    ps.setString(2, product.getSupplierCompanyName());
+                    ps.setString(3, product.getProductName());
+                    ps.setString(4, product.getDescription());
+                    ps.setString(5, product.getSku());
+                    ps.setString(6, product.getCategory());
+                    ps.setBigDecimal(7, product.getPrice());
+                    ps.setBigDecimal(8, product.getCost());
+                    ps.setObject(9, product.getStockQuantity(), Types.INTEGER);
+                    ps.setBigDecimal(10, product.getWeight());
+                    ps.setString(11, product.getStatus());
+                    ps.setString(12, product.getBarcode());
+                    ps.setObject(13, product.getLowStockAlert(), Types.INTEGER);
+                    ps.setString(14, product.getTrackInventory());
+                    ps.setBigDecimal(15, product.getComparePrice());
+                    ps.setBigDecimal(16, product.getProfitMargin());
+                    ps.setString(17, product.getFeatures());
+                    ps.setString(18, product.getCareInstructions());
+                    ps.setString(19, product.getBrand());
+                    ps.setString(20, product.getCountryOfOrigin());
+                    ps.setTimestamp(21, now);
+                    ps.setTimestamp(22, now);
+                });
+
+                // Reload the batch so caches and indexes see the generated ids; publishing inside
+                // the transaction writes the batch's change-log rows along with the products
+                List<String> skus = new ArrayList<>(batch.size());
+                for (Product product : batch) {
+                    skus.add(product.getSku());
+                }
+                for (Product saved : productRepository.findByUserIdAndSkuIn(run.user.getId(), skus)) {
+                    stockLedger.record(saved, saved.getStockQuantity() != null ? saved.getStockQuantity() : 0,
+                            StockMovement.Reason.INITIAL, "import");
+                    eventPublisher.publishEvent(ProductChangeEvent.created(saved));
+                }
+            });
+        } catch (Exception ex) {
+            logger.error("Error inserting product import batch", ex);
+            for (int i = 0; i < batch.size(); i++) {
+                run.fail(lines.get(i), batch.get(i).getSku(), "Insert failed: " + ex.getMessage());
+            }
+            return;
+        }
+        run.imported += batch.size();
+    }
+
+    private static String value(List<String> record, Map<String, Integer> columns, String field) {
+        Integer index = columns.get(field);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(List<String> record, Map<String, Integer> columns, String field) {
+        String value = value(record, columns, field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException(field + " must be a number: '" + value + "'");
+        }
+    }
+
+    private static Integer integer(List<String> record, Map<String, Integer> columns, String field) {
+        String value = value(record, columns, field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException(field + " must be a whole number: '" + value + "'");
+        }
+    }
+
+    private static final class ImportRun {
+        private final User user;
+        private final List<ProductImportErrorDTO> errors = new ArrayList<>();
+        private List<Product> pending = new ArrayList<>();
+        private List<Integer> pendingLines = new ArrayList<>();
+        private int totalRows;
+        private int imported;
+        private int failed;
+
+        private ImportRun(User user) {
+            this.user = user;
+        }
+
+        private void fail(int line, String sku, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportErrorDTO(line, sku, message));
+            }
+        }
+    }
+}
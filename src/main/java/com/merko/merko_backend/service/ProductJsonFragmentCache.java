@@ -0,0 +1,109 @@
+package com.merko.merko_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merko.merko_backend.dto.ProductDTO;
+import com.merko.merko_backend.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pre-serialized JSON for individual products. Each product is rendered once per row version
+ * (updatedAt) and listings are written by concatenating the cached bytes, skipping
+ * DTO conversion and Jackson serialization for unchanged products.
+ * Only active when catalog.json-fragments.enabled=true.
+ */
+@Component
+public class ProductJsonFragmentCache {
+
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_END = {']'};
+    private static final byte[] COMMA = {','};
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final BoundedTtlCache<Integer, Fragment> fragments;
+
+    public ProductJsonFragmentCache(ObjectMapper objectMapper,
+                                    @Value("${catalog.json-fragments.enabled:false}") boolean enabled,
+                                    @Value("${catalog.json-fragments.max-entries:50000}") int maxEntries,
+                                    @Value("${catalog.json-fragments.ttl-seconds:86400}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.fragments = new BoundedTtlCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Cached JSON for the product if it was rendered from the same row version, otherwise null
+    public byte[] get(Integer productId, LocalDateTime updatedAt) {
+        Fragment fragment = fragments.get(productId, cached -> Objects.equals(cached.updatedAt, updatedAt));
+        return fragment != null ? fragment.json : null;
+    }
+
+    public byte[] render(ProductDTO dto) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            if (enabled) {
+                fragments.put(dto.getId(), new Fragment(dto.getUpdatedAt(), json));
+            }
+            return json;
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException("Failed to serialize product " + dto.getId() + ": " + ex.getMessage());
+        }
+    }
+
+    public byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException("Failed to serialize value: " + ex.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        fragments.invalidate(event.getProductId());
+    }
+
+    public static void writeArray(OutputStream out, List<byte[]> jsonFragments) throws IOException {
+        out.write(ARRAY_START);
+        for (int i = 0; i < jsonFragments.size(); i++) {
+            if (i > 0) {
+                out.write(COMMA);
+            }
+            out.write(jsonFragments.get(i));
+        }
+        out.write(ARRAY_END);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fragmentEntries", fragments.size());
+        stats.put("fragmentHits", fragments.getHits());
+        stats.put("fragmentMisses", fragments.getMisses());
+        stats.put("fragmentEvictions", fragments.getEvictions());
+        return stats;
+    }
+
+    private static final class Fragment {
+        private final LocalDateTime updatedAt;
+        private final byte[] json;
+
+        private Fragment(LocalDateTime updatedAt, byte[] json) {
+            this.updatedAt = updatedAt;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, brand, category, features and description.
+ * Filled by CatalogIndexBuilder at startup, then kept current by ProductChangeEvent,
+ * so searches never query MySQL.
+ */
+@Component
+public class ProductSearchIndex implements CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Field weights used for relevance ranking
+    private static final int NAME_WEIGHT = 8;
+    private static final int BRAND_WEIGHT = 4;
+    private static final int CATEGORY_WEIGHT = 4;
+    private static final int FEATURES_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Prefix matches score lower than whole-word matches
+    private static final int EXACT_MATCH_BOOST = 2;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "for", "with", "in", "on", "to", "or", "by");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> weighted term frequency)
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, IndexedProduct> products = new HashMap<>();
+
+    // Products deleted while the startup build is running, so the build doesn't re-add them
+    private final Set<Integer> deletedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+
+    @Override
+    public void loadFromScan(List<Product> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : batch) {
+                // Changes that arrived during the scan are newer than this snapshot
+                if (!products.containsKey(product.getId()) && !deletedDuringBuild.contains(product.getId())) {
+                    add(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void scanCompleted() {
+        lock.writeLock().lock();
+        try {
+            deletedDuringBuild.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index ready: {} products, {} terms", products.size(), postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getProductId());
+            if (event.getType() == ProductChangeEvent.Type.DELETED) {
+                if (!ready) {
+                    deletedDuringBuild.add(event.getProductId());
+                }
+            } else if (event.getProduct() != null) {
+                add(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks products matching every query token. Each token matches indexed terms it is a
+     * prefix of; whole-word matches score higher than prefix matches.
+     */
+    public SearchResult search(String query, boolean activeOnly, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty()) {
+            return new SearchResult(List.of(), 0, ready);
+        }
+
+        lock.readLock().lock();
+        try {
+            // Start from the most selective token so intersections stay small
+            List<Map<Integer, Integer>> tokenScores = new ArrayList<>();
+            for (String token : tokens) {
+                Map<Integer, Integer> scores = scoreToken(token);
+                if (scores.isEmpty()) {
+                    return new SearchResult(List.of(), 0, ready);
+                }
+                tokenScores.add(scores);
+            }
+            tokenScores.sort(Comparator.comparingInt(Map::size));
+
+            Map<Integer, Integer> candidates = new HashMap<>(tokenScores.get(0));
+            for (int i = 1; i < tokenScores.size() && !candidates.isEmpty(); i++) {
+                Map<Integer, Integer> scores = tokenScores.get(i);
+                candidates.entrySet().removeIf(entry -> !scores.containsKey(entry.getKey()));
+                candidates.replaceAll((productId, score) -> score + scores.get(productId));
+            }
+
+            if (activeOnly) {
+                candidates.keySet().removeIf(productId -> !products.get(productId).active);
+            }
+
+            // Keep the top results with a bounded min-heap
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingInt(Hit::getScore)
+                    .thenComparing(Hit::getId, Comparator.reverseOrder()));
+            for (Map.Entry<Integer, Integer> entry : candidates.entrySet()) {
+                IndexedProduct product = products.get(entry.getKey());
+                top.offer(new Hit(entry.getKey(), product.updatedAt, entry.getValue()));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingInt(Hit::getScore).reversed().thenComparing(Hit::getId));
+            return new SearchResult(hits, candidates.size(), ready);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    private Map<Integer, Integer> scoreToken(String token) {
+        Map<Integer, Integer> scores = new HashMap<>();
+
+        Map<Integer, Integer> exact = postings.get(token);
+        if (exact != null) {
+            exact.forEach((productId, weight) -> scores.merge(productId, weight * EXACT_MATCH_BOOST, Integer::sum));
+        }
+
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            int expansions = 0;
+            for (Map.Entry<String, Map<Integer, Integer>> entry
+                    : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                // A product matching several expansions only counts its best one
+                entry.getValue().forEach((productId, weight) -> scores.merge(productId, weight, Math::max));
+            }
+        }
+        return scores;
+    }
+
+    private void add(Product product) {
+        Map<String, Integer> termWeights = new HashMap<>();
+        addField(termWeights, product.getProductName(), NAME_WEIGHT);
+        addField(termWeights, product.getBrand(), BRAND_WEIGHT);
+        addField(termWeights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(termWeights, product.getFeatures(), FEATURES_WEIGHT);
+        addField(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        termWeights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), weight));
+
+        products.put(product.getId(), new IndexedProduct(termWeights.keySet().toArray(new String[0]),
+                "Active".equals(product.getStatus()), product.getUpdatedAt()));
+    }
+
+    private void remove(Integer productId) {
+        IndexedProduct existing = products.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms) {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Integer> termWeights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            termWeights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        // Fold accents and case so "Café" matches "cafe"
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class IndexedProduct {
+        private final String[] terms;
+        private final boolean active;
+        private final LocalDateTime updatedAt;
+
+        private IndexedProduct(String[] terms, boolean active, LocalDateTime updatedAt) {
+            this.terms = terms;
+            this.active = active;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    public static final class Hit implements ProductRepository.CatalogKey {
+        private final Integer id;
+        private final LocalDateTime updatedAt;
+        private final int score;
+
+        private Hit(Integer id, LocalDateTime updatedAt, int score) {
+            this.id = id;
+            this.updatedAt = updatedAt;
+            this.score = score;
+        }
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    public static final class SearchResult {
+        private final List<Hit> hits;
+        private final int totalMatches;
+        private final boolean indexReady;
+
+        private SearchResult(List<Hit> hits, int totalMatches, boolean indexReady) {
+            this.hits = hits;
+            this.totalMatches = totalMatches;
+            this.indexReady = indexReady;
+        }
+
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+
+        public boolean isIndexReady() {
+            return indexReady;
+        }
+    }
+}
@@ -1,29 +1,50 @@
 package com.merko.merko_backend.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merko.merko_backend.dto.LowStockReportDTO;
+import com.merko.merko_backend.dto.ProductChangesDTO;
 import com.merko.merko_backend.dto.ProductDTO;
+import com.merko.merko_backend.dto.ProductFacetsDTO;
+import com.merko.merko_backend.dto.ProductPageDTO;
+import com.merko.merko_backend.dto.ProductSearchResultDTO;
+import com.merko.merko_backend.dto.StockLedgerDTO;
 import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.ProductChange;
 import com.merko.merko_backend.entity.ProductImage;
+import com.merko.merko_backend.entity.StockMovement;
 import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.ProductChangeRepository;
 import com.merko.merko_backend.repository.ProductImageRepository;
 import com.merko.merko_backend.repository.ProductRepository;
 import com.merko.merko_backend.repository.UserRepository;
+import com.merko.merko_backend.util.CatalogCursor;
+import com.merko.merko_backend.util.QueryCounter;
+import com.merko.merko_backend.util.SyncToken;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
@@ -39,10 +60,71 @@ public class ProductService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ProductJsonFragmentCache jsonFragmentCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private ProductImageRenditionService renditionService;
+
+    @Autowired
+    private ProductImageStorage imageStorage;
+
+    @Autowired
+    private UploadGarbageCollector uploadGarbageCollector;
+
+    @Autowired
+    private SupplierSkuIndex skuIndex;
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private ProductFieldProjection fieldProjection;
+
+    @Autowired
+    private LowStockMonitor lowStockMonitor;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StockLockStripes stockLocks;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Spring's configured mapper, so exported JSON matches the API responses
+    @Autowired
+    private ObjectMapper responseMapper;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    private static final int DEFAULT_CATALOG_PAGE_SIZE = 24;
+    private static final int MAX_CATALOG_PAGE_SIZE = 100;
+    private static final int IN_BATCH_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+    private static final int DEFAULT_CHANGES_LIMIT = 500;
+    private static final int MAX_CHANGES_LIMIT = 1000;
+
+    @Value("${catalog.query-budget.enforce:false}")
+    private boolean enforceQueryBudget;
 
     // Add SKU availability check method
     public boolean isSkuAvailable(String sku, String email) {
@@ -50,10 +132,8 @@ public class ProductService {
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            // Check if SKU already exists for this user
-            Optional<Product> existingProduct = productRepository.findBySkuAndUserId(sku, user.getId());
-
-            boolean available = existingProduct.isEmpty();
+            // Answered from the supplier's in-memory SKU index
+            boolean available = skuIndex.findProductId(user.getId(), sku) == null;
             logger.info("SKU '{}' availability check for user {}: {}", sku, user.getId(), available);
 
             return available;
@@ -81,8 +161,7 @@ public class ProductService {
             logger.info("ProductDTO parsed: {}", productDTO.getProductName());
 
             // Check for duplicate SKU before creating product
-            Optional<Product> existingProduct = productRepository.findBySkuAndUserId(productDTO.getSku(), user.getId());
-            if (existingProduct.isPresent()) {
+            if (skuIndex.findProductId(user.getId(), productDTO.getSku()) != null) {
                 throw new RuntimeException("SKU '" + productDTO.getSku() + "' is already in use. Please use a different SKU.");
             }
 
@@ -115,10 +194,18 @@ public class ProductService {
                 handleProductImages(images, product);
             }
 
-            // Save product
-            Product savedProduct = productRepository.save(product);
+            // Save product; the change event is published in the same transaction so its change-log row commits with it
+            Product savedProduct = new TransactionTemplate(transactionManager).execute(status -> {
+                Product saved = productRepository.save(product);
+                stockLedger.record(saved, saved.getStockQuantity() != null ? saved.getStockQuantity() : 0,
+                        StockMovement.Reason.INITIAL, null);
+                eventPublisher.publishEvent(ProductChangeEvent.created(saved));
+                return saved;
+            });
             logger.info("Product with images saved successfully with ID: {}", savedProduct.getId());
 
+            renderJsonFragment(savedProduct);
+
             return savedProduct;
 
         } catch (Exception ex) {
@@ -131,7 +218,8 @@ public class ProductService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return productRepository.findByUserId(user.getId());
+        // Fetch-join images so serializing the list doesn't lazy-load them per product
+        return productRepository.findByUserIdWithImages(user.getId());
     }
 
     public Product getProductById(Integer id, String email) {
@@ -173,9 +261,9 @@ public class ProductService {
             ProductDTO productDTO = objectMapper.readValue(productStr, ProductDTO.class);
 
             // Check for duplicate SKU when SKU is being changed
-            if (!product.getSku().equals(productDTO.getSku())) {
-                Optional<Product> existingProduct = productRepository.findBySkuAndUserId(productDTO.getSku(), user.getId());
-                if (existingProduct.isPresent()) {
+            if (!Objects.equals(product.getSku(), productDTO.getSku())) {
+                Integer skuOwner = skuIndex.findProductId(user.getId(), productDTO.getSku());
+                if (skuOwner != null && !skuOwner.equals(product.getId())) {
                     throw new RuntimeException("SKU '" + productDTO.getSku() + "' is already in use. Please use a different SKU.");
                 }
             }
@@ -187,6 +275,7 @@ public class ProductService {
             product.setCategory(productDTO.getCategory());
             product.setPrice(productDTO.getPrice());
             product.setCost(productDTO.getCost());
+            Integer previousStock = product.getStockQuantity();
             product.setStockQuantity(productDTO.getStockQuantity());
             product.setWeight(productDTO.getWeight());
             product.setStatus(productDTO.getStatus());
@@ -201,8 +290,9 @@ public class ProductService {
             product.setCountryOfOrigin(productDTO.getCountryOfOrigin());
 
             // Handle image deletions
+            List<String> removedImageUrls = List.of();
             if (imagesToDeleteStr != null && !imagesToDeleteStr.isEmpty()) {
-                handleImageDeletions(imagesToDeleteStr, product);
+                removedImageUrls = handleImageDeletions(imagesToDeleteStr, product);
             }
 
             // Handle new images
@@ -210,9 +300,20 @@ public class ProductService {
                 handleProductImages(newImages, product);
             }
 
-            Product updatedProduct = productRepository.save(product);
+            Product updatedProduct = new TransactionTemplate(transactionManager).execute(status -> {
+                Product saved = productRepository.save(product);
+                stockLedger.recordAdjustment(saved, previousStock, saved.getStockQuantity(),
+                        StockMovement.Reason.ADJUSTMENT, null);
+                eventPublisher.publishEvent(ProductChangeEvent.updated(saved));
+                return saved;
+            });
             logger.info("Product updated successfully: {}", updatedProduct.getId());
 
+            // Files are shared by identical uploads, so only unlink them once the rows are gone
+            removedImageUrls.forEach(url -> imageStorage.release(extractFilenameFromUrl(url)));
+
+            renderJsonFragment(updatedProduct);
+
             return updatedProduct;
 
         } catch (Exception ex) {
@@ -233,20 +334,18 @@ public class ProductService {
             throw new RuntimeException("Access denied");
         }
 
-        // Delete associated image files
-        for (ProductImage image : product.getImages()) {
-            try {
-                String filename = extractFilenameFromUrl(image.getImageUrl());
-                Path filePath = Paths.get(uploadDir).resolve(filename);
-                Files.deleteIfExists(filePath);
-                logger.info("Deleted image file: {}", filename);
-            } catch (Exception e) {
-                logger.warn("Failed to delete image file: {}", e.getMessage());
-            }
-        }
+        List<String> imageUrls = product.getImages().stream()
+                .map(ProductImage::getImageUrl)
+                .collect(Collectors.toList());
 
-        productRepository.delete(product);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            productRepository.delete(product);
+            eventPublisher.publishEvent(ProductChangeEvent.deleted(id, product.getUserId()));
+        });
         logger.info("Product deleted successfully: {}", id);
+
+        // Delete image files no other product still references
+        imageUrls.forEach(url -> imageStorage.release(extractFilenameFromUrl(url)));
     }
 
     public List<ProductDTO> getAllProducts(String email, String role) {
@@ -255,48 +354,498 @@ public class ProductService {
             throw new RuntimeException("Access denied");
         }
 
-        // Fetch all products with necessary data loaded
-        List<Product> products = productRepository.findAll();
+        long queryMark = QueryCounter.current();
 
-        // Filter only active products for merchants
-        if ("MERCHANT".equals(role)) {
-            products = products.stream()
-                    .filter(product -> "Active".equals(product.getStatus()))
-                    .collect(Collectors.toList());
-        }
+        // Merchants only see active products; filter in SQL rather than in memory
+        List<ProductRepository.CatalogKey> keys = "MERCHANT".equals(role)
+                ? productRepository.findCatalogKeysByStatus("Active")
+                : productRepository.findCatalogKeys();
 
         // Convert to DTOs to avoid lazy loading issues
-        List<ProductDTO> productDTOs = products.stream().map(this::convertToDTO).collect(Collectors.toList());
+        List<ProductDTO> productDTOs = loadCatalogDTOs(keys);
+        checkListingQueryBudget(queryMark, keys.size(), "getAllProducts");
 
         logger.info("Fetched {} products for role: {}", productDTOs.size(), role);
         return productDTOs;
     }
 
-    // FIXED: Sanitize filenames to remove special characters
-    private void handleProductImages(List<MultipartFile> images, Product product) throws Exception {
-        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-        Files.createDirectories(uploadPath);
+    public ProductPageDTO getCatalogPage(String email, String role, String cursor, Integer size) {
+        long queryMark = QueryCounter.current();
+
+        CatalogPageKeys page = findCatalogPageKeys(role, cursor, size);
+        List<ProductDTO> items = loadCatalogDTOs(page.keys);
+        checkListingQueryBudget(queryMark, page.keys.size(), "getCatalogPage");
+
+        logger.info("Fetched catalog page of {} products for role: {} (hasMore: {})", items.size(), role, page.hasMore);
+        return new ProductPageDTO(items, page.nextCursor, page.hasMore, page.pageSize);
+    }
+
+    // Same JSON as getCatalogPage, assembled from pre-serialized product fragments
+    public void writeCatalogPage(String email, String role, String cursor, Integer size, OutputStream out) throws IOException {
+        CatalogPageKeys page = findCatalogPageKeys(role, cursor, size);
+        List<byte[]> items = loadCatalogFragments(page.keys);
+
+        out.write("{\"items\":".getBytes(StandardCharsets.UTF_8));
+        ProductJsonFragmentCache.writeArray(out, items);
+        out.write(",\"nextCursor\":".getBytes(StandardCharsets.UTF_8));
+        out.write(jsonFragmentCache.toJson(page.nextCursor));
+        out.write((",\"hasMore\":" + page.hasMore + ",\"size\":" + page.pageSize + "}").getBytes(StandardCharsets.UTF_8));
+
+        logger.info("Wrote catalog page of {} products from JSON fragments for role: {}", items.size(), role);
+    }
+
+    // Same JSON as getAllProducts, assembled from pre-serialized product fragments
+    public void writeAllProducts(String email, String role, OutputStream out) throws IOException {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        List<ProductRepository.CatalogKey> keys = "MERCHANT".equals(role)
+                ? productRepository.findCatalogKeysByStatus("Active")
+                : productRepository.findCatalogKeys();
+        List<byte[]> items = loadCatalogFragments(keys);
+
+        ProductJsonFragmentCache.writeArray(out, items);
+        logger.info("Wrote {} products from JSON fragments for role: {}", items.size(), role);
+    }
+
+    public ProductSearchResultDTO searchProducts(String query, String email, String role, Integer limit) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+        if (query == null || query.isBlank()) {
+            throw new RuntimeException("Search query is required");
+        }
+
+        int maxResults = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+
+        // Merchants only see active products
+        ProductSearchIndex.SearchResult result = searchIndex.search(query, "MERCHANT".equals(role), maxResults);
+        List<ProductDTO> items = loadCatalogDTOs(new ArrayList<>(result.getHits()));
+
+        logger.info("Search '{}' matched {} products for role: {}", query, result.getTotalMatches(), role);
+        return new ProductSearchResultDTO(query, result.getTotalMatches(), result.isIndexReady(), items);
+    }
+
+    public ProductFacetsDTO getProductFacets(String role, List<String> categories, List<String> brands,
+                                             List<String> countries, List<String> priceBands) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        ProductFacetIndex.FacetCounts counts = facetIndex.facetCounts(
+                facetFilters(categories, brands, countries, priceBands));
+        return new ProductFacetsDTO(counts.getTotalMatches(), counts.isIndexReady(), counts.getFacets());
+    }
+
+    // Active products matching the facet filters, newest id first; the cursor is the last id returned
+    public ProductPageDTO filterProducts(String role, List<String> categories, List<String> brands,
+                                         List<String> countries, List<String> priceBands,
+                                         String cursor, Integer size) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        int pageSize = size == null ? DEFAULT_CATALOG_PAGE_SIZE
+                : Math.max(1, Math.min(size, MAX_CATALOG_PAGE_SIZE));
+
+        Integer beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                beforeId = Integer.valueOf(cursor);
+            } catch (NumberFormatException ex) {
+                throw new RuntimeException("Invalid filter cursor");
+            }
+        }
+
+        ProductFacetIndex.FilterResult result = facetIndex.filter(
+                facetFilters(categories, brands, countries, priceBands), beforeId, pageSize);
+
+        List<ProductRepository.CatalogKey> keys = result.getKeys();
+        boolean hasMore = keys.size() > pageSize;
+        if (hasMore) {
+            keys = keys.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? String.valueOf(keys.get(keys.size() - 1).getId()) : null;
+
+        List<ProductDTO> items = loadCatalogDTOs(keys);
+        logger.info("Filtered catalog: {} matches, returning {} products", result.getTotalMatches(), items.size());
+        return new ProductPageDTO(items, nextCursor, hasMore, pageSize);
+    }
+
+    private Map<String, Set<String>> facetFilters(List<String> categories, List<String> brands,
+                                                  List<String> countries, List<String> priceBands) {
+        Map<String, Set<String>> filters = new HashMap<>();
+        filters.put(ProductFacetIndex.CATEGORY, facetValues(categories));
+        filters.put(ProductFacetIndex.BRAND, facetValues(brands));
+        filters.put(ProductFacetIndex.COUNTRY_OF_ORIGIN, facetValues(countries));
+        filters.put(ProductFacetIndex.PRICE_BAND, facetValues(priceBands));
+        return filters;
+    }
+
+    private Set<String> facetValues(List<String> values) {
+        if (values == null) {
+            return Set.of();
+        }
+        return values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .map(String::trim)
+                .collect(Collectors.toSet());
+    }
+
+    public StockLedgerDTO getStockLedger(Integer id, String email, Integer limit) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+
+        // Ensure the product belongs to the authenticated user
+        if (!product.getUserId().equals(user.getId())) {
+            throw new RuntimeException("Access denied");
+        }
+
+        return stockLedger.getLedger(product, limit);
+    }
+
+    // Served from the in-memory low-stock set; no product query
+    public LowStockReportDTO getLowStockProducts(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return new LowStockReportDTO(lowStockMonitor.isReady(), lowStockMonitor.getLowStock(user.getId()));
+    }
+
+    // Sparse fieldset variants: only the requested columns are selected and returned
+
+    public List<Map<String, Object>> getMyProductFields(String email, String fields) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return fieldProjection.query(fieldProjection.parse(fields), "p.userId = :userId",
+                Map.of("userId", user.getId()), "p.id", null);
+    }
+
+    public Map<String, Object> getProductFieldsById(Integer id, String email, String fields) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Ownership is part of the condition, so another supplier's product reads as missing
+        List<Map<String, Object>> rows = fieldProjection.query(fieldProjection.parse(fields),
+                "p.id = :id AND p.userId = :userId", Map.of("id", id, "userId", user.getId()), null, null);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Product not found");
+        }
+        return rows.get(0);
+    }
+
+    public List<Map<String, Object>> getAllProductFields(String email, String role, String fields) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        List<String> selected = fieldProjection.parse(fields);
+        List<Map<String, Object>> rows = "MERCHANT".equals(role)
+                ? fieldProjection.query(selected, "p.status = 'Active'", Map.of(), "p.id", null)
+                : fieldProjection.query(selected, null, Map.of(), "p.id", null);
+
+        logger.info("Fetched {} products ({} fields) for role: {}", rows.size(), selected.size(), role);
+        return rows;
+    }
+
+    public Map<String, Object> getCatalogPageFields(String email, String role, String cursor, Integer size, String fields) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+        int pageSize = size == null ? DEFAULT_CATALOG_PAGE_SIZE
+                : Math.max(1, Math.min(size, MAX_CATALOG_PAGE_SIZE));
+
+        List<String> requested = fieldProjection.parse(fields);
+        // updatedAt is needed for the cursor even when not requested
+        List<String> selected = new ArrayList<>(requested);
+        if (!selected.contains("updatedAt")) {
+            selected.add("updatedAt");
+        }
+
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        if ("MERCHANT".equals(role)) {
+            conditions.add("p.status = 'Active'");
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            CatalogCursor after;
+            try {
+                after = CatalogCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+            conditions.add("(p.updatedAt < :updatedAt OR (p.updatedAt = :updatedAt AND p.id < :id))");
+            params.put("updatedAt", after.getUpdatedAt());
+            params.put("id", after.getId());
+        }
+
+        List<Map<String, Object>> rows = fieldProjection.query(selected,
+                conditions.isEmpty() ? null : String.join(" AND ", conditions), params,
+                "p.updatedAt DESC, p.id DESC", pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Map<String, Object> last = rows.get(rows.size() - 1);
+            nextCursor = new CatalogCursor((LocalDateTime) last.get("updatedAt"), (Integer) last.get("id")).encode();
+        }
+        if (!requested.contains("updatedAt")) {
+            rows.forEach(row -> row.remove("updatedAt"));
+        }
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", rows);
+        page.put("nextCursor", nextCursor);
+        page.put("hasMore", hasMore);
+        page.put("size", pageSize);
+        return page;
+    }
 
-        logger.info("Upload directory: {}", uploadPath.toString());
+    public List<Map<String, Object>> getActiveSupplierProductFields(Long supplierId, String email, String fields) {
+        verifyApprovedSupplier(supplierId, email);
+        return fieldProjection.query(fieldProjection.parse(fields), "p.userId = :userId AND p.status = 'Active'",
+                Map.of("userId", supplierId), "p.id", null);
+    }
+
+    /**
+     * Products created, changed or deleted since the sync token, each reported once in its
+     * current state. Without a token, returns only a token for the current position.
+     */
+    public ProductChangesDTO getChanges(String since, String email, String role, Integer limit) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+        int pageSize = limit == null ? DEFAULT_CHANGES_LIMIT : Math.max(1, Math.min(limit, MAX_CHANGES_LIMIT));
+
+        Long minSeq = productChangeRepository.findMinSeq();
+        if (since == null || since.isBlank()) {
+            Long maxSeq = productChangeRepository.findMaxSeq();
+            return new ProductChangesDTO(List.of(), List.of(), SyncToken.encode(maxSeq != null ? maxSeq : 0), false, true);
+        }
+
+        long sinceSeq = SyncToken.decode(since);
+        // Entries after the token were pruned, so the gap can't be replayed
+        if (minSeq != null && sinceSeq < minSeq - 1) {
+            Long maxSeq = productChangeRepository.findMaxSeq();
+            return new ProductChangesDTO(List.of(), List.of(), SyncToken.encode(maxSeq), false, true);
+        }
+
+        List<ProductChange> changes = productChangeRepository.findBySeqGreaterThanOrderBySeqAsc(
+                sinceSeq, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+        long nextSeq = changes.isEmpty() ? sinceSeq : changes.get(changes.size() - 1).getSeq();
+
+        // Latest change per product wins
+        Set<Integer> changedIds = new LinkedHashSet<>();
+        for (ProductChange change : changes) {
+            changedIds.add(change.getProductId());
+        }
+
+        List<Product> products = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(changedIds);
+        for (int from = 0; from < ids.size(); from += IN_BATCH_SIZE) {
+            products.addAll(productRepository.findAllById(ids.subList(from, Math.min(from + IN_BATCH_SIZE, ids.size()))));
+        }
+
+        // Merchants only see active products, so deactivated ones are tombstones for them
+        boolean activeOnly = "MERCHANT".equals(role);
+        List<Product> visible = new ArrayList<>();
+        Set<Integer> deletedIds = new LinkedHashSet<>(changedIds);
+        for (Product product : products) {
+            if (!activeOnly || "Active".equals(product.getStatus())) {
+                visible.add(product);
+                deletedIds.remove(product.getId());
+            }
+        }
+
+        logger.info("Delta sync for {}: {} changes, {} products, {} tombstones",
+                email, changes.size(), visible.size(), deletedIds.size());
+        return new ProductChangesDTO(convertToDTOs(visible), new ArrayList<>(deletedIds),
+                SyncToken.encode(nextSeq), hasMore, false);
+    }
+
+    // Newline-delimited JSON of every active product, written while streaming rows from the database
+    public StreamingResponseBody exportActiveCatalog(String email, String role) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+        logger.info("Starting catalog export for user: {}", email);
+        return this::writeActiveCatalogExport;
+    }
+
+    private void writeActiveCatalogExport(OutputStream out) {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        long started = System.currentTimeMillis();
+        int exported = readOnlyTransaction.execute(status -> {
+            int count = 0;
+            try (Stream<Object[]> rows = productRepository.streamActiveCatalogWithImages()) {
+                Iterator<Object[]> iterator = rows.iterator();
+                Product current = null;
+                List<ProductImage> images = new ArrayList<>();
+
+                // Rows arrive grouped by product, one per image
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    Product product = (Product) row[0];
+                    if (current != null && !current.getId().equals(product.getId())) {
+                        writeExportLine(out, current, images);
+                        images = new ArrayList<>();
+                        if (++count % EXPORT_FLUSH_INTERVAL == 0) {
+                            out.flush();
+                        }
+                    }
+                    current = product;
+                    if (row[1] != null) {
+                        images.add((ProductImage) row[1]);
+                    }
+                }
+                if (current != null) {
+                    writeExportLine(out, current, images);
+                    count++;
+                }
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return count;
+        });
+
+        logger.info("Exported {} active products in {} ms", exported, System.currentTimeMillis() - started);
+    }
+
+    private void writeExportLine(OutputStream out, Product product, List<ProductImage> images) throws IOException {
+        out.write(responseMapper.writeValueAsBytes(convertToDTO(product, images)));
+        out.write('\n');
+        // Keep the persistence context from growing with the catalog
+        entityManager.detach(product);
+        images.forEach(entityManager::detach);
+    }
+
+    public boolean isJsonFragmentModeEnabled() {
+        return jsonFragmentCache.isEnabled();
+    }
+
+    private CatalogPageKeys findCatalogPageKeys(String role, String cursor, Integer size) {
+        if (!"MERCHANT".equals(role) && !"SUPPLIER".equals(role)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        int pageSize = size == null ? DEFAULT_CATALOG_PAGE_SIZE
+                : Math.max(1, Math.min(size, MAX_CATALOG_PAGE_SIZE));
+
+        // Fetch one extra row to know whether another page exists
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        boolean merchant = "MERCHANT".equals(role);
+
+        List<ProductRepository.CatalogKey> keys;
+        if (cursor == null || cursor.isBlank()) {
+            keys = merchant
+                    ? productRepository.findCatalogPageByStatus("Active", limit)
+                    : productRepository.findCatalogPage(limit);
+        } else {
+            CatalogCursor after;
+            try {
+                after = CatalogCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+            keys = merchant
+                    ? productRepository.findCatalogPageByStatusAfter("Active", after.getUpdatedAt(), after.getId(), limit)
+                    : productRepository.findCatalogPageAfter(after.getUpdatedAt(), after.getId(), limit);
+        }
+
+        boolean hasMore = keys.size() > pageSize;
+        if (hasMore) {
+            keys = keys.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProductRepository.CatalogKey last = keys.get(keys.size() - 1);
+            nextCursor = new CatalogCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        return new CatalogPageKeys(keys, nextCursor, hasMore, pageSize);
+    }
+
+    private static final class CatalogPageKeys {
+        private final List<ProductRepository.CatalogKey> keys;
+        private final String nextCursor;
+        private final boolean hasMore;
+        private final int pageSize;
+
+        private CatalogPageKeys(List<ProductRepository.CatalogKey> keys, String nextCursor, boolean hasMore, int pageSize) {
+            this.keys = keys;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+            this.pageSize = pageSize;
+        }
+    }
 
+    public Map<String, Object> getUploadGcStats() {
+        return uploadGarbageCollector.getStats();
+    }
+
+    public Map<String, Object> getStockLockStats() {
+        return stockLocks.getStats();
+    }
+
+    public Map<String, Object> getRenditionStats() {
+        return renditionService.getStats();
+    }
+
+    public Map<String, Object> getCatalogCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(catalogCache.getStats());
+        stats.putAll(jsonFragmentCache.getStats());
+        stats.putAll(skuIndex.getStats());
+        return stats;
+    }
+
+    // Render the listing JSON once at write time so reads only copy bytes
+    private void renderJsonFragment(Product product) {
+        if (jsonFragmentCache.isEnabled()) {
+            jsonFragmentCache.render(convertToDTO(product));
+        }
+    }
+
+    // FIXED: Sanitize filenames to remove special characters
+    private void handleProductImages(List<MultipartFile> images, Product product) throws Exception {
+        List<String> originalFilenames = new ArrayList<>(images.size());
         for (MultipartFile file : images) {
             logger.info("Processing image: {} (size: {} bytes)", file.getOriginalFilename(), file.getSize());
-
             String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-            String sanitizedFilename = sanitizeFilename(originalFilename);
-            String fileName = UUID.randomUUID() + "_" + sanitizedFilename;
+            originalFilenames.add(sanitizeFilename(originalFilename));
+        }
+
+        // Written concurrently; names come back in upload order
+        List<String> fileNames = imageStorage.storeAll(images, originalFilenames);
 
-            Path targetLocation = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        for (int i = 0; i < images.size(); i++) {
+            String fileName = fileNames.get(i);
 
             ProductImage img = new ProductImage();
             // Store just the filename, not the full path
             img.setImageUrl(fileName);
             img.setProduct(product);
+            img.setRenditionStatus(renditionService.hasRenditions(fileName)
+                    ? ProductImage.RenditionStatus.READY
+                    : ProductImage.RenditionStatus.PENDING);
 
             product.getImages().add(img);
 
-            logger.info("Image saved: {} -> {}", file.getOriginalFilename(), fileName);
+            logger.info("Image saved: {} -> {}", images.get(i).getOriginalFilename(), fileName);
         }
     }
 
@@ -330,7 +879,9 @@ public class ProductService {
         return sanitized + extension;
     }
 
-    private void handleImageDeletions(String imagesToDeleteStr, Product product) {
+    // Detaches the images from the product and returns their URLs, to be released once the update is saved
+    private List<String> handleImageDeletions(String imagesToDeleteStr, Product product) {
+        List<String> removedUrls = new ArrayList<>();
         String[] imageIds = imagesToDeleteStr.split(",");
         for (String imageIdStr : imageIds) {
             Long imageId = Long.parseLong(imageIdStr.trim());
@@ -341,16 +892,10 @@ public class ProductService {
 
             if (imageToDelete != null) {
                 product.getImages().remove(imageToDelete);
-                try {
-                    String filename = extractFilenameFromUrl(imageToDelete.getImageUrl());
-                    Path filePath = Paths.get(uploadDir).resolve(filename);
-                    Files.deleteIfExists(filePath);
-                    logger.info("Deleted image file during update: {}", filename);
-                } catch (Exception e) {
-                    logger.warn("Failed to delete image file: {}", e.getMessage());
-                }
+                removedUrls.add(imageToDelete.getImageUrl());
             }
         }
+        return removedUrls;
     }
 
     private String extractFilenameFromUrl(String imageUrl) {
@@ -361,7 +906,108 @@ public class ProductService {
         return imageUrl;
     }
 
+    // Resolves listing rows from the catalog cache, loading only the misses from the database
+    private List<ProductDTO> loadCatalogDTOs(List<ProductRepository.CatalogKey> keys) {
+        Map<Integer, ProductDTO> resolved = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (ProductRepository.CatalogKey key : keys) {
+            ProductDTO cached = catalogCache.getProduct(key.getId(), key.getUpdatedAt());
+            if (cached != null) {
+                resolved.put(key.getId(), cached);
+            } else {
+                missing.add(key.getId());
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += IN_BATCH_SIZE) {
+            List<Integer> chunk = missing.subList(from, Math.min(from + IN_BATCH_SIZE, missing.size()));
+            for (ProductDTO dto : convertToDTOs(productRepository.findAllById(chunk))) {
+                catalogCache.putProduct(dto);
+                resolved.put(dto.getId(), dto);
+            }
+        }
+
+        // Keep the listing order; rows deleted since the key query are skipped
+        return keys.stream()
+                .map(key -> resolved.get(key.getId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Pre-serialized JSON per listing row; only products changed since they were last rendered are converted
+    private List<byte[]> loadCatalogFragments(List<ProductRepository.CatalogKey> keys) {
+        Map<Integer, byte[]> resolved = new HashMap<>();
+        List<ProductRepository.CatalogKey> missing = new ArrayList<>();
+        for (ProductRepository.CatalogKey key : keys) {
+            byte[] json = jsonFragmentCache.get(key.getId(), key.getUpdatedAt());
+            if (json != null) {
+                resolved.put(key.getId(), json);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        for (ProductDTO dto : loadCatalogDTOs(missing)) {
+            resolved.put(dto.getId(), jsonFragmentCache.render(dto));
+        }
+
+        return keys.stream()
+                .map(key -> resolved.get(key.getId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<byte[]> toFragments(List<ProductDTO> dtos) {
+        List<byte[]> fragments = new ArrayList<>(dtos.size());
+        for (ProductDTO dto : dtos) {
+            byte[] json = jsonFragmentCache.get(dto.getId(), dto.getUpdatedAt());
+            fragments.add(json != null ? json : jsonFragmentCache.render(dto));
+        }
+        return fragments;
+    }
+
+    // Converts a listing page, loading all image URLs with one IN query per chunk
+    // instead of initializing each product's lazy images collection
+    private List<ProductDTO> convertToDTOs(List<Product> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Integer> productIds = products.stream().map(Product::getId).collect(Collectors.toList());
+        Map<Integer, List<ProductImage>> images = loadImages(productIds);
+
+        return products.stream()
+                .map(product -> convertToDTO(product, images.get(product.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Integer, List<ProductImage>> loadImages(List<Integer> productIds) {
+        Map<Integer, List<ProductImage>> images = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += IN_BATCH_SIZE) {
+            List<Integer> chunk = productIds.subList(from, Math.min(from + IN_BATCH_SIZE, productIds.size()));
+            for (ProductImage image : productImageRepository.findByProductIds(chunk)) {
+                // Reading the id of the lazy product reference doesn't load it
+                images.computeIfAbsent(image.getProduct().getId(), id -> new ArrayList<>()).add(image);
+            }
+        }
+        return images;
+    }
+
+    // Listings should cost one key query plus a products query and an image query per chunk
+    private void checkListingQueryBudget(long mark, int productCount, String context) {
+        long budget = 1 + 2L * Math.max(1, (productCount + IN_BATCH_SIZE - 1) / IN_BATCH_SIZE);
+        if (enforceQueryBudget) {
+            QueryCounter.assertAtMost(mark, budget, context);
+        } else if (QueryCounter.since(mark) > budget) {
+            logger.warn("{} executed {} SQL statements, expected at most {}", context, QueryCounter.since(mark), budget);
+        }
+    }
+
     private ProductDTO convertToDTO(Product product) {
+        return convertToDTO(product, product.getImages());
+    }
+
+    private ProductDTO convertToDTO(Product product, List<ProductImage> images) {
         ProductDTO dto = new ProductDTO();
         dto.setId(product.getId());
         dto.setProductName(product.getProductName());
@@ -387,28 +1033,34 @@ public class ProductService {
 
         dto.setSupplierCompanyName(product.getSupplierCompanyName());
 
-        if (product.getImages() != null && !product.getImages().isEmpty()) {
-            List<String> imageUrls = product.getImages().stream()
-                    .map(image -> {
-                        String imageUrl = image.getImageUrl();
-                        // Always return with /uploads/ prefix for consistency
-                        if (imageUrl != null && imageUrl.startsWith("/uploads/")) {
-                            return imageUrl;
-                        } else {
-                            return "/uploads/" + imageUrl;
-                        }
-                    })
-                    .collect(Collectors.toList());
-
+        if (images != null && !images.isEmpty()) {
+            List<String> imageUrls = new ArrayList<>(images.size());
+            List<String> thumbnailUrls = new ArrayList<>(images.size());
+            List<String> mediumUrls = new ArrayList<>(images.size());
+            for (ProductImage image : images) {
+                imageUrls.add(toPublicImageUrl(image.getImageUrl()));
+                thumbnailUrls.add(ProductImageRenditionService.thumbnailUrl(image));
+                mediumUrls.add(ProductImageRenditionService.mediumUrl(image));
+            }
             dto.setImageUrls(imageUrls);
-            logger.info("Product {}: Final image URLs: {}", product.getId(), imageUrls);
+            dto.setThumbnailUrls(thumbnailUrls);
+            dto.setMediumUrls(mediumUrls);
+            logger.debug("Product {}: Final image URLs: {}", product.getId(), imageUrls);
         } else {
-            logger.info("Product {} has no images", product.getId());
+            logger.debug("Product {} has no images", product.getId());
         }
 
         return dto;
     }
 
+    // Always return with /uploads/ prefix for consistency
+    private String toPublicImageUrl(String imageUrl) {
+        if (imageUrl != null && imageUrl.startsWith("/uploads/")) {
+            return imageUrl;
+        }
+        return "/uploads/" + imageUrl;
+    }
+
     // Add these methods to your existing ProductService
 
     public List<ProductDTO> getProductsBySupplier(Long supplierId, String email) {
@@ -428,12 +1080,7 @@ public class ProductService {
             }
 
             // Get products for this supplier
-            List<Product> products = productRepository.findBySupplierIdWithImages(supplierId);
-
-            // Convert to DTOs
-            List<ProductDTO> productDTOs = products.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<ProductDTO> productDTOs = loadActiveSupplierProducts(supplierId);
 
             logger.info("Found {} products for supplier: {}", productDTOs.size(), supplier.getCompanyName());
             return productDTOs;
@@ -448,29 +1095,10 @@ public class ProductService {
         try {
             logger.info("Fetching active products for supplier ID: {}", supplierId);
 
-            // Verify the requesting user exists (can be merchant or supplier)
-            User requestingUser = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            // Verify the supplier exists and is approved
-            User supplier = userRepository.findById(supplierId)
-                    .orElseThrow(() -> new RuntimeException("Supplier not found"));
-
-            if (!supplier.getRole().toString().equals("SUPPLIER")) {
-                throw new RuntimeException("User is not a supplier");
-            }
-
-            if (!supplier.getStatus().toString().equals("APPROVED")) {
-                throw new RuntimeException("Supplier is not approved");
-            }
+            User supplier = verifyApprovedSupplier(supplierId, email);
 
             // Get only active products for this supplier
-            List<Product> products = productRepository.findActiveProductsBySupplier(supplierId);
-
-            // Convert to DTOs
-            List<ProductDTO> productDTOs = products.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<ProductDTO> productDTOs = loadActiveSupplierProducts(supplierId);
 
             logger.info("Found {} active products for supplier: {}", productDTOs.size(), supplier.getCompanyName());
             return productDTOs;
@@ -480,4 +1108,58 @@ public class ProductService {
             throw new RuntimeException("Failed to fetch supplier products: " + ex.getMessage());
         }
     }
+
+    // Same JSON as the /supplier storefront response, assembled from pre-serialized product fragments
+    public void writeActiveProductsBySupplier(Long supplierId, String email, OutputStream out) throws IOException {
+        List<byte[]> products;
+        try {
+            verifyApprovedSupplier(supplierId, email);
+            products = toFragments(loadActiveSupplierProducts(supplierId));
+        } catch (Exception ex) {
+            logger.error("Error fetching active supplier products", ex);
+            throw new RuntimeException("Failed to fetch supplier products: " + ex.getMessage());
+        }
+
+        out.write("{\"success\":true,\"products\":".getBytes(StandardCharsets.UTF_8));
+        ProductJsonFragmentCache.writeArray(out, products);
+        out.write('}');
+    }
+
+    private User verifyApprovedSupplier(Long supplierId, String email) {
+        // Verify the requesting user exists (can be merchant or supplier)
+        User requestingUser = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Verify the supplier exists and is approved
+        User supplier = userRepository.findById(supplierId)
+                .orElseThrow(() -> new RuntimeException("Supplier not found"));
+
+        if (!supplier.getRole().toString().equals("SUPPLIER")) {
+            throw new RuntimeException("User is not a supplier");
+        }
+
+        if (!supplier.getStatus().toString().equals("APPROVED")) {
+            throw new RuntimeException("Supplier is not approved");
+        }
+
+        return supplier;
+    }
+
+    // Active storefront listing for a supplier, served from the catalog cache when possible
+    private List<ProductDTO> loadActiveSupplierProducts(Long supplierId) {
+        List<ProductDTO> cached = catalogCache.getSupplierProducts(supplierId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = catalogCache.currentGeneration();
+        long queryMark = QueryCounter.current();
+
+        List<Product> products = productRepository.findActiveProductsBySupplier(supplierId);
+        List<ProductDTO> productDTOs = convertToDTOs(products);
+        checkListingQueryBudget(queryMark, products.size(), "loadActiveSupplierProducts");
+
+        catalogCache.putSupplierProducts(supplierId, productDTOs, generation);
+        return productDTOs;
+    }
 }
\ No newline at end of file
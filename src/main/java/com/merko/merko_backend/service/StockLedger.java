@@ -0,0 +1,213 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.dto.StockLedgerDTO;
+import com.merko.merko_backend.dto.StockMovementDTO;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.StockMovement;
+import com.merko.merko_backend.entity.StockSnapshot;
+import com.merko.merko_backend.repository.StockMovementRepository;
+import com.merko.merko_backend.repository.StockSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only ledger of stock movements. Movements are written in the transaction of the stock
+ * change they record, as one JDBC batch just before it commits, so a committed change always
+ * has its movement. Snapshots periodically fold each product's movements into a running
+ * quantity, so its ledger stock is the snapshot plus a short tail of newer movements.
+ */
+@Component
+public class StockLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final String INSERT_SQL = "INSERT INTO stock_movements "
+            + "(product_id, supplier_id, delta, reason, reference, recorded_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Folds the movements after each product's snapshot, up to a committed id, into a new snapshot
+    // (the derived table lets the update refer to the new values without the deprecated VALUES())
+    private static final String SNAPSHOT_SQL = "INSERT INTO stock_snapshots (product_id, quantity, last_movement_id, taken_at) "
+            + "SELECT * FROM (SELECT m.product_id, COALESCE(s.quantity, 0) + SUM(m.delta) AS folded_quantity, "
+            + "MAX(m.id) AS folded_last_id, ? AS folded_at "
+            + "FROM stock_movements m LEFT JOIN stock_snapshots s ON s.product_id = m.product_id "
+            + "WHERE m.id > COALESCE(s.last_movement_id, 0) AND m.id <= ? "
+            + "GROUP BY m.product_id, s.quantity) AS folded "
+            + "ON DUPLICATE KEY UPDATE quantity = folded.folded_quantity, last_movement_id = folded.folded_last_id, "
+            + "taken_at = folded.folded_at";
+
+    // Products created before the ledger existed start from their stock column
+    private static final String OPENING_SQL = "INSERT INTO stock_snapshots (product_id, quantity, last_movement_id, taken_at) "
+            + "SELECT p.id, COALESCE(p.stock_quantity, 0), 0, ? FROM products p "
+            + "WHERE p.created_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM stock_snapshots s WHERE s.product_id = p.id) "
+            + "AND NOT EXISTS (SELECT 1 FROM stock_movements m WHERE m.product_id = p.id)";
+
+    private static final int DEFAULT_LEDGER_LIMIT = 50;
+    private static final int MAX_LEDGER_LIMIT = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${inventory.ledger.batch-size:500}")
+    private int batchSize;
+
+    // Snapshots leave out movements younger than this, whose transaction may not have committed yet
+    @Value("${inventory.ledger.snapshot-grace-seconds:60}")
+    private long snapshotGraceSeconds;
+
+    private final LocalDateTime bootTime = LocalDateTime.now();
+
+    /**
+     * Records a change to a product's stock. Inside a transaction the movement is written with
+     * it, so rolled-back deductions never reach the ledger; outside one it is written at once.
+     */
+    public void record(Product product, int delta, StockMovement.Reason reason, String reference) {
+        if (delta == 0 && reason != StockMovement.Reason.INITIAL) {
+            return;
+        }
+        StockMovement movement = new StockMovement(null, product.getId(), product.getUserId(), delta,
+                reason, reference, null);
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            insert(List.of(movement));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<StockMovement> pending = (List<StockMovement>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<StockMovement> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    insert(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockLedger.this);
+                }
+
+                // Ahead of ProductChangeLog, whose append lock must not be held while these rows are inserted
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+            });
+            pending = buffer;
+        }
+        pending.add(movement);
+    }
+
+    // Change of the stock column from one value to another; null counts as zero
+    public void recordAdjustment(Product product, Integer before, Integer after, StockMovement.Reason reason,
+                                 String reference) {
+        int delta = (after != null ? after : 0) - (before != null ? before : 0);
+        record(product, delta, reason, reference);
+    }
+
+    // Stamped at insert, just before the commit, so the snapshot grace period starts from there
+    private void insert(List<StockMovement> movements) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, movements, batchSize, (ps, movement) -> {
+            ps.setInt(1, movement.getProductId());
+            ps.setObject(2, movement.getSupplierId(), Types.BIGINT);
+            ps.setInt(3, movement.getDelta());
+            ps.setString(4, movement.getReason().name());
+            ps.setString(5, movement.getReference());
+            ps.setTimestamp(6, now);
+        });
+        logger.debug("Recorded {} stock movements", movements.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void openBalances() {
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int opened = jdbcTemplate.update(OPENING_SQL, now, Timestamp.valueOf(bootTime));
+            if (opened > 0) {
+                logger.info("Opened stock ledger balances for {} existing products", opened);
+            }
+        } catch (Exception ex) {
+            logger.error("Failed to open stock ledger balances", ex);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${inventory.ledger.snapshot-interval-ms:300000}",
+            fixedDelayString = "${inventory.ledger.snapshot-interval-ms:300000}")
+    public void takeSnapshots() {
+        try {
+            // Movement ids are allocated at insert but commit in any order; a movement inserted
+            // before the grace cutoff has committed (or rolled back), so no lower id can show up later
+            Long upTo = stockMovementRepository.findMaxIdRecordedBefore(
+                    LocalDateTime.now().minusSeconds(snapshotGraceSeconds));
+            if (upTo == null) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            // READ COMMITTED reads the movements without locking them, so stock writes keep inserting meanwhile
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+            Integer rows = transaction.execute(status ->
+                    jdbcTemplate.update(SNAPSHOT_SQL, Timestamp.valueOf(LocalDateTime.now()), upTo));
+            logger.info("Stock snapshots up to movement {} updated {} rows in {} ms",
+                    upTo, rows, System.currentTimeMillis() - started);
+        } catch (Exception ex) {
+            logger.error("Failed to take stock snapshots", ex);
+        }
+    }
+
+    public StockLedgerDTO getLedger(Product product, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LEDGER_LIMIT : Math.min(limit, MAX_LEDGER_LIMIT);
+        Integer productId = product.getId();
+
+        StockSnapshot snapshot = stockSnapshotRepository.findById(productId).orElse(null);
+        long afterId = snapshot != null ? snapshot.getLastMovementId() : 0L;
+        long quantity = (snapshot != null ? snapshot.getQuantity() : 0)
+                + stockMovementRepository.sumDeltaAfter(productId, afterId);
+
+        List<StockMovementDTO> movements = new ArrayList<>();
+        for (StockMovement movement : stockMovementRepository.findByProductIdOrderByIdDesc(productId,
+                PageRequest.of(0, pageSize))) {
+            movements.add(new StockMovementDTO(movement.getId(), movement.getDelta(),
+                    movement.getReason().name(), movement.getReference(), movement.getRecordedAt()));
+        }
+
+        int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        return new StockLedgerDTO(productId, product.getStockQuantity(), (int) quantity,
+                stock == quantity,
+                snapshot != null ? snapshot.getQuantity() : null,
+                snapshot != null ? snapshot.getTakenAt() : null,
+                movements);
+    }
+}
@@ -3,9 +3,12 @@ package com.merko.merko_backend.service;
 import com.merko.merko_backend.entity.*;
 import com.merko.merko_backend.dto.SupplierOrderItemDTO;
 import com.merko.merko_backend.repository.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +36,18 @@ public class SupplierOrderService {
     @Autowired
     private ConfirmedOrderRepository confirmedOrderRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StockLockStripes stockLocks;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public List<SupplierOrderItemDTO> getSupplierOrders(String userEmail) {
         logger.info("🔍 Fetching supplier orders for: {}", userEmail);
 
@@ -185,35 +200,43 @@ public class SupplierOrderService {
     private void handleStockDeduction(OrderItem orderItem) {
         Product product = orderItem.getProduct();
         int orderedQuantity = orderItem.getQuantity();
-        int currentStock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
 
-        logger.info("📊 Stock check - Product: {}, Current Stock: {}, Ordered: {}",
-                product.getProductName(), currentStock, orderedQuantity);
+        logger.info("📊 Stock check - Product: {}, Ordered: {}", product.getProductName(), orderedQuantity);
+
+        // Writers of the same product wait here until this transaction ends, not on the row lock
+        stockLocks.lockUntilCompletion(product.getId());
+
+        // Check and deduct in one statement, so concurrent confirmations can't oversell
+        int updated = productRepository.deductStock(product.getId(), orderedQuantity, LocalDateTime.now());
+        entityManager.refresh(product);
+        int currentStock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
 
-        // Check if sufficient stock is available
-        if (currentStock < orderedQuantity) {
+        if (updated == 0) {
             throw new RuntimeException("Insufficient stock. Available: " + currentStock + ", Ordered: " + orderedQuantity);
         }
 
-        // Deduct stock
-        product.setStockQuantity(currentStock - orderedQuantity);
-        productRepository.save(product);
+        stockLedger.record(product, -orderedQuantity, StockMovement.Reason.ORDER_DEDUCTION, "order-item:" + orderItem.getId());
+        eventPublisher.publishEvent(ProductChangeEvent.stockChanged(product));
 
         logger.info("✅ Stock deducted for product {}: {} units. New stock: {}",
-                product.getId(), orderedQuantity, (currentStock - orderedQuantity));
+                product.getId(), orderedQuantity, currentStock);
     }
 
     private void handleStockRestoration(OrderItem orderItem) {
         Product product = orderItem.getProduct();
         int orderedQuantity = orderItem.getQuantity();
-        int currentStock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
 
-        // Restore stock
-        product.setStockQuantity(currentStock + orderedQuantity);
-        productRepository.save(product);
+        stockLocks.lockUntilCompletion(product.getId());
+
+        // Restore stock relative to the current value, not the one loaded with the order item
+        productRepository.restoreStock(product.getId(), orderedQuantity, LocalDateTime.now());
+        entityManager.refresh(product);
+
+        stockLedger.record(product, orderedQuantity, StockMovement.Reason.ORDER_RESTORE, "order-item:" + orderItem.getId());
+        eventPublisher.publishEvent(ProductChangeEvent.stockChanged(product));
 
         logger.info("🔄 Stock restored for product {}: {} units. New stock: {}",
-                product.getId(), orderedQuantity, (currentStock + orderedQuantity));
+                product.getId(), orderedQuantity, product.getStockQuantity());
     }
 
     // New method to save to confirmed_orders table
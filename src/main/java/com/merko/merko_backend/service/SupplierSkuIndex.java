@@ -0,0 +1,116 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.util.BoundedTtlCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-supplier map of SKU -> product id, so SKU availability and duplicate checks are answered
+ * from memory. A supplier's SKUs are loaded with one query on first use and then kept current
+ * by ProductChangeEvent.
+ */
+@Component
+public class SupplierSkuIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SupplierSkuIndex.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final BoundedTtlCache<Long, SupplierSkus> suppliers;
+
+    // Bumped on every product change so a load that raced with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public SupplierSkuIndex(@Value("${catalog.sku-index.max-suppliers:1000}") int maxSuppliers,
+                            @Value("${catalog.sku-index.ttl-seconds:3600}") long ttlSeconds) {
+        this.suppliers = new BoundedTtlCache<>(maxSuppliers, ttlSeconds * 1000);
+    }
+
+    // Id of the supplier's product using this SKU, or null when it is free
+    public Integer findProductId(Long supplierId, String sku) {
+        if (sku == null) {
+            return null;
+        }
+        return skusOf(supplierId).productIdsBySku.get(normalize(sku));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        generation.incrementAndGet();
+        if (event.getSupplierId() == null) {
+            return;
+        }
+        SupplierSkus skus = suppliers.get(event.getSupplierId());
+        if (skus == null) {
+            return;
+        }
+        skus.remove(event.getProductId());
+        if (event.getProduct() != null) {
+            skus.put(event.getProductId(), event.getProduct().getSku());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("skuSuppliers", suppliers.size());
+        stats.put("skuHits", suppliers.getHits());
+        stats.put("skuMisses", suppliers.getMisses());
+        return stats;
+    }
+
+    private SupplierSkus skusOf(Long supplierId) {
+        SupplierSkus skus = suppliers.get(supplierId);
+        if (skus != null) {
+            return skus;
+        }
+
+        long loadedAt = generation.get();
+        skus = new SupplierSkus();
+        for (ProductRepository.SkuKey key : productRepository.findSkuKeysByUserId(supplierId)) {
+            skus.put(key.getId(), key.getSku());
+        }
+        if (generation.get() == loadedAt) {
+            suppliers.put(supplierId, skus);
+        }
+        logger.debug("Loaded {} SKUs for supplier {}", skus.productIdsBySku.size(), supplierId);
+        return skus;
+    }
+
+    // MySQL's default collation compares case-insensitively and ignores trailing spaces
+    private static String normalize(String sku) {
+        return sku.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class SupplierSkus {
+        private final Map<String, Integer> productIdsBySku = new ConcurrentHashMap<>();
+        private final Map<Integer, String> skusByProductId = new ConcurrentHashMap<>();
+
+        private synchronized void put(Integer productId, String sku) {
+            if (sku == null) {
+                return;
+            }
+            String key = normalize(sku);
+            productIdsBySku.put(key, productId);
+            skusByProductId.put(productId, key);
+        }
+
+        private synchronized void remove(Integer productId) {
+            String key = skusByProductId.remove(productId);
+            if (key != null) {
+                productIdsBySku.remove(key, productId);
+            }
+        }
+    }
+}
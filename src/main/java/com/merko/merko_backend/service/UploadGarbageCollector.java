@@ -0,0 +1,219 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.repository.ProductImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Periodically deletes files in the upload directory that no product_images row references:
+ * leftovers of failed adds, deletes whose unlink failed, and their renditions.
+ * Referenced names are loaded into a sorted array and files are checked by binary search
+ * while the directory is walked lazily; deletions are re-checked and done in paced batches.
+ */
+@Component
+public class UploadGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadGarbageCollector.class);
+
+    private static final String RENDITION_SUFFIX = ".jpg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductImageStorage imageStorage;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${images.gc.enabled:true}")
+    private boolean enabled;
+
+    // Files younger than this are never collected: their row may not be committed yet
+    @Value("${images.gc.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${images.gc.batch-size:100}")
+    private int batchSize;
+
+    @Value("${images.gc.batch-pause-ms:1000}")
+    private long batchPauseMs;
+
+    @Value("${images.gc.max-deletes-per-run:5000}")
+    private int maxDeletesPerRun;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private volatile long lastRunAt;
+    private volatile long lastRunDeleted;
+    private volatile long lastRunBytes;
+
+    @Scheduled(initialDelayString = "${images.gc.initial-delay-ms:600000}",
+            fixedDelayString = "${images.gc.interval-ms:21600000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        long cutoff = started - graceHours * 3600_000L;
+        String[] referenced = loadReferencedNames();
+
+        RunTotals totals = new RunTotals();
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        // Originals live at the top level, renditions one directory down
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext() && totals.deleted < maxDeletesPerRun) {
+                Path file = iterator.next();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    continue;
+                }
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                totals.scanned++;
+
+                if (attributes.lastModifiedTime().toMillis() >= cutoff) {
+                    continue;
+                }
+                String storedName = storedName(root, file);
+                if (storedName != null && (storedName.isEmpty() || Arrays.binarySearch(referenced, storedName) >= 0)) {
+                    continue;
+                }
+
+                batch.add(new Candidate(file, storedName, attributes.size()));
+                if (batch.size() >= batchSize) {
+                    deleteBatch(batch, totals);
+                    batch.clear();
+                    pause();
+                }
+            }
+            deleteBatch(batch, totals);
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Upload garbage collection failed", ex);
+        }
+
+        runs.incrementAndGet();
+        filesScanned.addAndGet(totals.scanned);
+        filesDeleted.addAndGet(totals.deleted);
+        bytesReclaimed.addAndGet(totals.bytes);
+        lastRunAt = started;
+        lastRunDeleted = totals.deleted;
+        lastRunBytes = totals.bytes;
+        logger.info("Upload garbage collection scanned {} files, deleted {} ({} bytes) in {} ms",
+                totals.scanned, totals.deleted, totals.bytes, System.currentTimeMillis() - started);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.get());
+        stats.put("filesScanned", filesScanned.get());
+        stats.put("filesDeleted", filesDeleted.get());
+        stats.put("bytesReclaimed", bytesReclaimed.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunDeleted", lastRunDeleted);
+        stats.put("lastRunBytesReclaimed", lastRunBytes);
+        return stats;
+    }
+
+    private String[] loadReferencedNames() {
+        List<String> urls = productImageRepository.findAllImageUrls();
+        String[] names = new String[urls.size()];
+        for (int i = 0; i < names.length; i++) {
+            String url = urls.get(i);
+            names[i] = url.substring(url.lastIndexOf('/') + 1);
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
+    /**
+     * Name of the original a file belongs to: itself at the top level, minus the ".jpg"
+     * suffix for renditions. Null for leftover temp files, which are always collectable.
+     */
+    private static String storedName(Path root, Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(TEMP_SUFFIX)) {
+            return null;
+        }
+        if (file.getParent().equals(root)) {
+            return name;
+        }
+        String dir = file.getParent().getFileName().toString();
+        if ((dir.equals(ProductImageRenditionService.THUMBNAIL_DIR) || dir.equals(ProductImageRenditionService.MEDIUM_DIR))
+                && name.endsWith(RENDITION_SUFFIX)) {
+            return name.substring(0, name.length() - RENDITION_SUFFIX.length());
+        }
+        // Unknown layout: an empty name marks it as never collectable
+        return "";
+    }
+
+    private void deleteBatch(List<Candidate> batch, RunTotals totals) {
+        for (Candidate candidate : batch) {
+            // The snapshot may be stale: a re-upload of the same bytes can reference the file again
+            if (candidate.storedName != null && (imageStorage.isRecentlyStored(candidate.storedName)
+                    || productImageRepository.countByImageUrl(candidate.storedName) > 0)) {
+                continue;
+            }
+            try {
+                if (Files.deleteIfExists(candidate.file)) {
+                    totals.deleted++;
+                    totals.bytes += candidate.size;
+                    logger.debug("Deleted orphaned upload {}", candidate.file);
+                }
+            } catch (IOException ex) {
+                logger.warn("Failed to delete orphaned upload {}: {}", candidate.file, ex.getMessage());
+            }
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Candidate {
+        private final Path file;
+        private final String storedName;
+        private final long size;
+
+        private Candidate(Path file, String storedName, long size) {
+            this.file = file;
+            this.storedName = storedName;
+            this.size = size;
+        }
+    }
+
+    private static final class RunTotals {
+        private long scanned;
+        private long deleted;
+        private long bytes;
+    }
+}
@@ -0,0 +1,1060 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Cart;
+import com.merko.merko_backend.repository.CartItemRepository;
+import com.merko.merko_backend.repository.CartRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Optional write-behind store for active carts (cart.store.mode=memory). Carts live in a
+ * bounded in-memory map keyed by user id; every change is appended to a log and fsynced
+ * before it is acknowledged, and dirty carts are written to carts/cart_items in coalesced
+ * batches on an interval and before checkout. Each flush starts a new log segment and
+ * deletes the older ones once everything they describe is in MySQL; leftover segments are
+ * replayed at startup.
+ *
+ * Log records carry the resulting state of a line, not the increment, so replaying a record
+ * that was already flushed is harmless. Lines not yet flushed have negative synthetic ids.
+ *
+ * A checkout logs a B record once its cart is in MySQL and an X record when it completes. If
+ * the process stops in between, replay asks MySQL whether that cart was ordered and if so
+ * drops the lines logged before the B record, as completing the checkout would have.
+ *
+ * A flush locks the rows of the carts it writes. A cart the reaper abandoned after it was
+ * loaded is not written to; all of its lines go to the user's active cart, created if needed.
+ *
+ * Each cart is guarded by its user's lock stripe, so different users' changes, fsyncs and
+ * cache-miss loads from MySQL run in parallel; the map of carts has its own short-held monitor.
+ */
+@Component
+public class WriteBehindCartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final String SEGMENT_PREFIX = "cart-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String UPSERT_SQL = "INSERT INTO cart_items "
+            + "(cart_id, product_id, quantity, price_at_time, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?) AS new "
+            + "ON DUPLICATE KEY UPDATE quantity = new.quantity, price_at_time = new.price_at_time, "
+            + "updated_at = new.updated_at";
+    private static final String DELETE_SQL = "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+    private static final String TOUCH_SQL = "UPDATE carts SET updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cart.store.mode:database}")
+    private String mode;
+
+    @Value("${cart.store.max-carts:10000}")
+    private int maxCarts;
+
+    @Value("${cart.store.log-dir:cart-log}")
+    private String logDir;
+
+    private final TransactionTemplate newTransaction;
+
+    // userId -> cart, least recently used first. Map structure is guarded by its own monitor,
+    // held only for lookups and inserts; a cart's contents are guarded by its user's stripe.
+    private final LinkedHashMap<Long, MemoryCart> carts = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ReentrantLock[] userLocks;
+
+    private final AtomicLong syntheticIds = new AtomicLong();
+
+    // Appends hold the read lock from writing their record until the change is in memory;
+    // starting a new segment takes the write lock. Lock order: flushLock, user stripe, segment.
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private FileChannel segment;
+    private volatile long segmentNumber;
+
+    // Serializes writes to MySQL, so two flushes never create the same user's cart twice
+    private final Object flushLock = new Object();
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong linesWritten = new AtomicLong();
+    private final AtomicLong linesDeleted = new AtomicLong();
+
+    public WriteBehindCartStore(PlatformTransactionManager transactionManager,
+                                @Value("${cart.store.lock-stripes:64}") int stripeCount) {
+        // Flushes commit on their own, even when the caller has a transaction open
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.userLocks = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return "memory".equalsIgnoreCase(mode);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path dir = Paths.get(logDir);
+        Files.createDirectories(dir);
+
+        // Nothing else touches the store until startup completes, so replay takes no locks
+        List<Path> segments = listSegments();
+        Map<Long, CheckoutMark> checkouts = new HashMap<>();
+        for (Path path : segments) {
+            replay(path, checkouts);
+        }
+        checkouts.forEach(this::resolveReplayedCheckout);
+        segmentLock.writeLock().lock();
+        try {
+            openSegment(segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        if (!segments.isEmpty()) {
+            logger.info("Replayed {} cart log segments, {} carts to write", segments.size(), dirtyCount());
+        }
+        flush();
+        logger.info("Write-behind cart store enabled, log in {}", dir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        flush();
+        segmentLock.writeLock().lock();
+        try {
+            closeSegment();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // ---- Cart operations; each is logged and fsynced before it returns ----
+
+    public StoredCart view(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = load(userId);
+            List<StoredLine> lines = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines.values()) {
+                lines.add(new StoredLine(line.effectiveId(), line.productId, line.quantity, line.price, line.createdAt));
+            }
+            return new StoredCart(cart.cartId, cart.createdAt, cart.updatedAt, lines);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Adds to the quantities of the given products; returns each product's quantity before the add (0 if new)
+    public Map<Integer, Integer> addAll(Long userId, Map<Integer, Integer> quantities,
+                                       Map<Integer, BigDecimal> prices) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = load(userId);
+            Map<Integer, Integer> previous = new LinkedHashMap<>();
+            Map<Integer, BigDecimal> linePrices = new HashMap<>();
+            StringBuilder records = new StringBuilder();
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                Line line = cart.lines.get(entry.getKey());
+                int before = line != null ? line.quantity : 0;
+                // Like the database path, an existing line keeps the price it was added at
+                BigDecimal price = line != null ? line.price : prices.get(entry.getKey());
+                previous.put(entry.getKey(), before);
+                linePrices.put(entry.getKey(), price);
+                appendLineRecord(records, userId, entry.getKey(), before + entry.getValue(), price);
+            }
+
+            logged(records, () -> {
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    setLine(cart, entry.getKey(), previous.get(entry.getKey()) + entry.getValue(),
+                            linePrices.get(entry.getKey()));
+                }
+            });
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setQuantity(Long userId, Long lineId, int quantity) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = load(userId);
+            Line line = findLine(cart, lineId);
+            StringBuilder records = new StringBuilder();
+            appendLineRecord(records, userId, line.productId, quantity, line.price);
+            logged(records, () -> setLine(cart, line.productId, quantity, line.price));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the product id of the removed line
+    public Integer remove(Long userId, Long lineId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = load(userId);
+            Line line = findLine(cart, lineId);
+            logged(new StringBuilder("D\t").append(userId).append('\t').append(line.productId).append('\n'),
+                    () -> deleteLine(cart, line.productId));
+            return line.productId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = load(userId);
+            logged(new StringBuilder("C\t").append(userId).append('\n'), () -> clearLines(cart));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a checkout: writes the user's cart to MySQL in a transaction of its own, which
+     * commits before this returns, so a checkout transaction started afterwards reads it. Until
+     * {@link #completeCheckout} or {@link #abortCheckout}, periodic flushes leave the cart
+     * alone, so nothing more is written into the cart being ordered. Returns the cart version
+     * that was written.
+     */
+    public long beginCheckout(Long userId) {
+        synchronized (flushLock) {
+            // Held through the write, so the B record follows exactly the lines that were written
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                MemoryCart cart = load(userId);
+                if (cart.isDirty() && !write(List.of(snapshot(cart)))) {
+                    throw new RuntimeException("Failed to save cart, please try again");
+                }
+                if (cart.cartId == null) {
+                    cart.checkingOut = true;
+                } else {
+                    logged(new StringBuilder("B\t").append(userId).append('\t').append(cart.cartId).append('\n'),
+                            () -> cart.checkingOut = true);
+                }
+                return cart.version;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ends a committed checkout, which marked the database cart ORDERED. If the cart is still at
+     * the version that was written it is forgotten. Otherwise lines changed during checkout are
+     * kept, in a fresh cart without a database id that the next flush creates; the ordered
+     * lines are dropped. The order is already committed, so a failure to log this is only
+     * logged: replay reaches the same state from the B record.
+     */
+    public void completeCheckout(Long userId, long checkedOutVersion) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = current(userId);
+            if (cart == null) {
+                return;
+            }
+            cart.checkingOut = false;
+
+            // Replays the same way: X forgets the ordered cart, the L records start the fresh one
+            StringBuilder records = new StringBuilder("X\t").append(userId).append('\n');
+            for (Line line : cart.lines.values()) {
+                if (line.version > checkedOutVersion) {
+                    appendLineRecord(records, userId, line.productId, line.quantity, line.price);
+                }
+            }
+            try {
+                logged(records, () -> forgetCheckedOutLines(cart, checkedOutVersion));
+            } catch (RuntimeException ex) {
+                logger.error("Failed to log the completed checkout of user {}, replay will use its B record", userId, ex);
+                forgetCheckedOutLines(cart, checkedOutVersion);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replaces an ordered cart with one holding only the lines changed after the given version, if any
+    private void forgetCheckedOutLines(MemoryCart cart, long checkedOutVersion) {
+        synchronized (carts) {
+            carts.remove(cart.userId);
+        }
+        if (cart.version == checkedOutVersion) {
+            return;
+        }
+        MemoryCart fresh = new MemoryCart(cart.userId);
+        fresh.touch();
+        for (Line line : cart.lines.values()) {
+            if (line.version > checkedOutVersion) {
+                // Keep the synthetic ids clients already have for these lines
+                Line kept = new Line(line.syntheticId, line.productId, line.quantity, line.price, line.createdAt);
+                kept.version = fresh.version;
+                fresh.lines.put(kept.productId, kept);
+                fresh.changed.add(kept.productId);
+            }
+        }
+        logger.info("Cart of user {} changed during checkout, keeping {} lines for a new cart",
+                cart.userId, fresh.lines.size());
+        synchronized (carts) {
+            carts.put(cart.userId, fresh);
+        }
+    }
+
+    // The checkout failed; the cart stays as it is and periodic flushes resume
+    public void abortCheckout(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            MemoryCart cart = current(userId);
+            if (cart != null) {
+                cart.checkingOut = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Database ids of the carts held in memory; their rows may be older than their contents
+    public Set<Long> getHeldCartIds() {
+        Set<Long> ids = new HashSet<>();
+        synchronized (carts) {
+            for (MemoryCart cart : carts.values()) {
+                Long cartId = cart.cartId;
+                if (cartId != null) {
+                    ids.add(cartId);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // ---- Flushing ----
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        if (isEnabled()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes every dirty cart. Starts a new log segment first; once the write succeeds, the
+     * older segments only describe state that is in MySQL and are deleted.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            long firstKept = startSegment();
+            List<FlushItem> items = new ArrayList<>();
+            boolean skipped = false;
+            for (MemoryCart cart : heldCarts()) {
+                ReentrantLock lock = lockFor(cart.userId);
+                lock.lock();
+                try {
+                    if (!cart.isDirty() || !isHeld(cart)) {
+                        continue;
+                    }
+                    if (cart.checkingOut) {
+                        skipped = true;
+                    } else {
+                        items.add(snapshot(cart));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            // A skipped cart's changes may only be in the older segments, so they stay until a later flush
+            if (write(items) && !skipped) {
+                deleteSegmentsBefore(firstKept);
+            }
+        }
+    }
+
+    private boolean write(List<FlushItem> items) {
+        if (items.isEmpty()) {
+            return true;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            newTransaction.executeWithoutResult(status -> writeItems(items));
+        } catch (Exception ex) {
+            flushFailures.incrementAndGet();
+            logger.error("Failed to write {} carts, they stay in the log until the next flush", items.size(), ex);
+            return false;
+        }
+
+        // Give flushed lines their database ids
+        List<Long> cartIds = new ArrayList<>();
+        for (FlushItem item : items) {
+            cartIds.add(item.cartId);
+        }
+        Map<Long, Map<Integer, Long>> lineIds = new HashMap<>();
+        for (CartItemRepository.CartLineState state : cartItemRepository.findLineStatesByCartIds(cartIds)) {
+            lineIds.computeIfAbsent(state.getCartId(), id -> new HashMap<>()).put(state.getProductId(), state.getId());
+        }
+
+        for (FlushItem item : items) {
+            ReentrantLock lock = lockFor(item.userId);
+            lock.lock();
+            try {
+                MemoryCart cart = item.cart;
+                if (!isHeld(cart)) {
+                    continue; // evicted meanwhile
+                }
+                cart.cartId = item.cartId;
+                Map<Integer, Long> ids = lineIds.getOrDefault(item.cartId, Map.of());
+                for (Line line : cart.lines.values()) {
+                    if (line.id == null || item.moved) {
+                        line.id = ids.get(line.productId);
+                    }
+                }
+                // Changes made while writing stay dirty; their records are in the new segment
+                if (cart.version == item.version) {
+                    cart.changed.clear();
+                    cart.deleted.clear();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        flushes.incrementAndGet();
+        logger.debug("Wrote {} carts ({} lines, {} deletions) in {} ms", items.size(),
+                items.stream().mapToInt(item -> item.lines.size()).sum(),
+                items.stream().mapToInt(item -> item.deleted.size()).sum(),
+                System.currentTimeMillis() - started);
+        return true;
+    }
+
+    private void writeItems(List<FlushItem> items) {
+        Set<Long> known = new HashSet<>();
+        for (FlushItem item : items) {
+            if (item.cartId != null) {
+                known.add(item.cartId);
+            }
+        }
+        if (!known.isEmpty()) {
+            Set<Long> active = new HashSet<>(cartRepository.lockActiveCartIds(known));
+            for (FlushItem item : items) {
+                if (item.cartId != null && !active.contains(item.cartId)) {
+                    logger.info("Cart {} of user {} is no longer active, moving its lines to an active cart",
+                            item.cartId, item.userId);
+                    item.cartId = null;
+                    item.moved = true;
+                }
+            }
+        }
+
+        for (FlushItem item : items) {
+            if (item.cartId == null) {
+                item.cartId = cartRepository.findActiveCartByUserId(item.userId)
+                        .map(Cart::getId)
+                        .orElseGet(() -> createCart(item.userId));
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> touches = new ArrayList<>();
+        for (FlushItem item : items) {
+            if (!item.moved) {
+                for (Integer productId : item.deleted) {
+                    deletes.add(new Object[]{item.cartId, productId});
+                }
+            }
+            for (Line line : item.moved ? item.allLines : item.lines) {
+                upserts.add(new Object[]{item.cartId, line.productId, line.quantity, line.price,
+                        Timestamp.valueOf(line.createdAt), now});
+            }
+            touches.add(new Object[]{now, item.cartId});
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        }
+        jdbcTemplate.batchUpdate(TOUCH_SQL, touches);
+        linesWritten.addAndGet(upserts.size());
+        linesDeleted.addAndGet(deletes.size());
+    }
+
+    private Long createCart(Long userId) {
+        Cart cart = new Cart();
+        cart.setUser(userRepository.getReferenceById(userId));
+        cart.setStatus("ACTIVE");
+        return cartRepository.save(cart).getId();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        synchronized (carts) {
+            stats.put("carts", carts.size());
+        }
+        stats.put("dirtyCarts", dirtyCount());
+        stats.put("segment", segmentNumber);
+        stats.put("lockStripes", userLocks.length);
+        stats.put("flushes", flushes.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("linesWritten", linesWritten.get());
+        stats.put("linesDeleted", linesDeleted.get());
+        return stats;
+    }
+
+    // ---- In-memory state; callers hold the user's stripe ----
+
+    private ReentrantLock lockFor(Long userId) {
+        return userLocks[Math.floorMod(userId.hashCode(), userLocks.length)];
+    }
+
+    private MemoryCart current(Long userId) {
+        synchronized (carts) {
+            return carts.get(userId);
+        }
+    }
+
+    private boolean isHeld(MemoryCart cart) {
+        synchronized (carts) {
+            return carts.get(cart.userId) == cart;
+        }
+    }
+
+    private List<MemoryCart> heldCarts() {
+        synchronized (carts) {
+            return new ArrayList<>(carts.values());
+        }
+    }
+
+    // A cache miss reads MySQL under the user's stripe only, so it never stalls other users
+    private MemoryCart load(Long userId) {
+        MemoryCart cart = current(userId);
+        if (cart != null) {
+            return cart;
+        }
+
+        cart = new MemoryCart(userId);
+        Optional<Cart> stored = cartRepository.findActiveCartByUserId(userId);
+        if (stored.isPresent()) {
+            cart.cartId = stored.get().getId();
+            cart.createdAt = stored.get().getCreatedAt();
+            cart.updatedAt = stored.get().getUpdatedAt();
+            for (CartItemRepository.CartLineState state : cartItemRepository.findLineStatesByCartIds(List.of(cart.cartId))) {
+                Line line = new Line(syntheticIds.decrementAndGet(), state.getProductId(), state.getQuantity(),
+                        state.getPriceAtTime(), state.getCreatedAt() != null ? state.getCreatedAt() : LocalDateTime.now());
+                line.id = state.getId();
+                cart.lines.put(line.productId, line);
+            }
+        }
+        synchronized (carts) {
+            carts.put(userId, cart);
+            evictOverflow(userId);
+        }
+        return cart;
+    }
+
+    /*
+     * Drops the least recently used clean carts beyond the limit; dirty ones wait for the next
+     * flush. Runs under the map monitor, so other users' stripes are only tried, never waited
+     * for; a cart whose stripe is busy is in use and skipped.
+     */
+    private void evictOverflow(Long loadingUserId) {
+        Iterator<MemoryCart> iterator = carts.values().iterator();
+        while (carts.size() > maxCarts && iterator.hasNext()) {
+            MemoryCart candidate = iterator.next();
+            if (candidate.userId.equals(loadingUserId) || candidate.checkingOut) {
+                continue;
+            }
+            ReentrantLock lock = lockFor(candidate.userId);
+            if (lock.isHeldByCurrentThread() || !lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (!candidate.isDirty()) {
+                    iterator.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static Line findLine(MemoryCart cart, Long lineId) {
+        for (Line line : cart.lines.values()) {
+            if (lineId.equals(line.id) || lineId == line.syntheticId) {
+                return line;
+            }
+        }
+        throw new RuntimeException("Cart item not found");
+    }
+
+    private void setLine(MemoryCart cart, Integer productId, int quantity, BigDecimal price) {
+        Line line = cart.lines.get(productId);
+        if (line == null) {
+            line = new Line(syntheticIds.decrementAndGet(), productId, quantity, price, LocalDateTime.now());
+            cart.lines.put(productId, line);
+        }
+        line.quantity = quantity;
+        line.price = price;
+        cart.changed.add(productId);
+        cart.deleted.remove(productId);
+        cart.touch();
+        line.version = cart.version;
+    }
+
+    private static void deleteLine(MemoryCart cart, Integer productId) {
+        if (cart.lines.remove(productId) != null) {
+            cart.changed.remove(productId);
+            cart.deleted.add(productId);
+            cart.touch();
+        }
+    }
+
+    private static void clearLines(MemoryCart cart) {
+        for (Integer productId : new ArrayList<>(cart.lines.keySet())) {
+            deleteLine(cart, productId);
+        }
+    }
+
+    private FlushItem snapshot(MemoryCart cart) {
+        List<Line> lines = new ArrayList<>();
+        List<Line> allLines = new ArrayList<>();
+        for (Line line : cart.lines.values()) {
+            Line copy = line.copy();
+            allLines.add(copy);
+            if (cart.changed.contains(line.productId)) {
+                lines.add(copy);
+            }
+        }
+        return new FlushItem(cart, cart.userId, cart.cartId, cart.version, lines, allLines,
+                new ArrayList<>(cart.deleted));
+    }
+
+    // Approximate: read without the carts' stripes, for stats and logging only
+    private int dirtyCount() {
+        int dirty = 0;
+        for (MemoryCart cart : heldCarts()) {
+            if (cart.isDirty()) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    // ---- Append log ----
+
+    private static void appendLineRecord(StringBuilder records, Long userId, Integer productId, int quantity,
+                                         BigDecimal price) {
+        records.append("L\t").append(userId).append('\t').append(productId).append('\t').append(quantity)
+                .append('\t').append(price.toPlainString()).append('\n');
+    }
+
+    /*
+     * Appends the records, fsyncs them and only then applies the change in memory, all under
+     * the segment read lock: a flush that starts a new segment waits for it, so any change whose
+     * record is in an older segment is already visible to that flush's snapshot.
+     */
+    private void logged(StringBuilder records, Runnable change) {
+        segmentLock.readLock().lock();
+        try {
+            writeLog(records);
+            change.run();
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    // Nothing is changed in memory unless its record reached the disk
+    private void writeLog(StringBuilder records) {
+        if (segment == null) {
+            throw new IllegalStateException("Cart store is not running");
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+        } catch (IOException ex) {
+            logger.error("Failed to append to the cart log", ex);
+            throw new RuntimeException("Failed to save cart change, please try again");
+        }
+    }
+
+    private void replay(Path path, Map<Long, CheckoutMark> checkouts) {
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                if (applyRecord(record.split("\t"), checkouts)) {
+                    applied++;
+                } else {
+                    // A torn last record from a crash mid-write was never acknowledged
+                    logger.warn("Skipping malformed cart log record in {}: {}", path.getFileName(), record);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to replay cart log " + path, ex);
+        }
+        logger.info("Replayed {} records from {}", applied, path.getFileName());
+    }
+
+    // Checkouts begun but not completed are collected, to be resolved once every segment is replayed
+    private boolean applyRecord(String[] fields, Map<Long, CheckoutMark> checkouts) {
+        try {
+            switch (fields[0]) {
+                case "L" -> {
+                    if (fields.length != 5) {
+                        return false;
+                    }
+                    setLine(load(Long.valueOf(fields[1])), Integer.valueOf(fields[2]), Integer.parseInt(fields[3]),
+                            new BigDecimal(fields[4]));
+                }
+                case "D" -> {
+                    if (fields.length != 3) {
+                        return false;
+                    }
+                    deleteLine(load(Long.valueOf(fields[1])), Integer.valueOf(fields[2]));
+                }
+                case "C" -> {
+                    if (fields.length != 2) {
+                        return false;
+                    }
+                    clearLines(load(Long.valueOf(fields[1])));
+                }
+                case "B" -> {
+                    if (fields.length != 3) {
+                        return false;
+                    }
+                    Long userId = Long.valueOf(fields[1]);
+                    checkouts.put(userId, new CheckoutMark(Long.valueOf(fields[2]), load(userId).version));
+                }
+                case "X" -> {
+                    if (fields.length != 2) {
+                        return false;
+                    }
+                    Long userId = Long.valueOf(fields[1]);
+                    checkouts.remove(userId);
+                    synchronized (carts) {
+                        carts.remove(userId);
+                    }
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    // A checkout whose X record is missing: if its cart was ordered, finish it as completeCheckout would have
+    private void resolveReplayedCheckout(Long userId, CheckoutMark mark) {
+        boolean ordered = cartRepository.findById(mark.cartId)
+                .map(cart -> !"ACTIVE".equals(cart.getStatus()))
+                .orElse(true);
+        MemoryCart cart = current(userId);
+        if (!ordered || cart == null) {
+            return;
+        }
+        logger.info("Checkout of cart {} by user {} committed before the last shutdown, dropping its lines",
+                mark.cartId, userId);
+        forgetCheckedOutLines(cart, mark.version);
+    }
+
+    // Starts a new segment unless the current one is still empty; returns the current segment number
+    private long startSegment() {
+        segmentLock.writeLock().lock();
+        try {
+            if (segment != null && position() > 0) {
+                openSegment(segmentNumber + 1);
+            }
+            return segmentNumber;
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the segment write lock
+    private void openSegment(long number) {
+        closeSegment();
+        Path path = Paths.get(logDir).resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        try {
+            segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segmentNumber = number;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to open cart log segment " + path, ex);
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException ex) {
+            logger.warn("Failed to close cart log segment {}: {}", segmentNumber, ex.getMessage());
+        }
+        segment = null;
+    }
+
+    private long position() {
+        try {
+            return segment.position();
+        } catch (IOException ex) {
+            return 1;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(logDir))) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(WriteBehindCartStore::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private void deleteSegmentsBefore(long number) {
+        try {
+            for (Path path : listSegments()) {
+                if (segmentNumber(path) < number) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("Failed to delete flushed cart log segments: {}", ex.getMessage());
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    // ---- Types ----
+
+    public static final class StoredCart {
+        private final Long cartId;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final List<StoredLine> lines;
+
+        private StoredCart(Long cartId, LocalDateTime createdAt, LocalDateTime updatedAt, List<StoredLine> lines) {
+            this.cartId = cartId;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.lines = lines;
+        }
+
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public List<StoredLine> getLines() {
+            return lines;
+        }
+    }
+
+    public static final class StoredLine {
+        private final Long id;
+        private final Integer productId;
+        private final Integer quantity;
+        private final BigDecimal priceAtTime;
+        private final LocalDateTime createdAt;
+
+        private StoredLine(Long id, Integer productId, Integer quantity, BigDecimal priceAtTime, LocalDateTime createdAt) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.priceAtTime = priceAtTime;
+            this.createdAt = createdAt;
+        }
+
+        // Negative until the line has been written to MySQL
+        public Long getId() {
+            return id;
+        }
+
+        public Integer getProductId() {
+            return productId;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getPriceAtTime() {
+            return priceAtTime;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    private static final class MemoryCart {
+        private final Long userId;
+        // Also read under the map monitor alone, by getHeldCartIds
+        private volatile Long cartId;
+        private LocalDateTime createdAt = LocalDateTime.now();
+        private LocalDateTime updatedAt = createdAt;
+        private final Map<Integer, Line> lines = new LinkedHashMap<>();
+
+        // Products whose line must be written or deleted by the next flush
+        private final Set<Integer> changed = new HashSet<>();
+        private final Set<Integer> deleted = new HashSet<>();
+        private long version;
+
+        // Between beginCheckout and its completion; periodic flushes skip the cart meanwhile
+        private volatile boolean checkingOut;
+
+        private MemoryCart(Long userId) {
+            this.userId = userId;
+        }
+
+        private boolean isDirty() {
+            return !changed.isEmpty() || !deleted.isEmpty();
+        }
+
+        private void touch() {
+            version++;
+            updatedAt = LocalDateTime.now();
+        }
+    }
+
+    private static final class Line {
+        private final long syntheticId;
+        private Long id;
+        private final Integer productId;
+        private int quantity;
+        private BigDecimal price;
+        private final LocalDateTime createdAt;
+
+        // Cart version of the line's last change
+        private long version;
+
+        private Line(long syntheticId, Integer productId, int quantity, BigDecimal price, LocalDateTime createdAt) {
+            this.syntheticId = syntheticId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.price = price;
+            this.createdAt = createdAt;
+        }
+
+        // Clients keep using the synthetic id after the flush; both resolve to the line
+        private Long effectiveId() {
+            return id != null ? id : syntheticId;
+        }
+
+        private Line copy() {
+            Line copy = new Line(syntheticId, productId, quantity, price, createdAt);
+            copy.id = id;
+            return copy;
+        }
+    }
+
+    // Cart a replayed B record checked out, and the replayed cart version at that record
+    private static final class CheckoutMark {
+        private final Long cartId;
+        private final long version;
+
+        private CheckoutMark(Long cartId, long version) {
+            this.cartId = cartId;
+            this.version = version;
+        }
+    }
+
+    private static final class FlushItem {
+        private final MemoryCart cart;
+        private final Long userId;
+        private Long cartId;
+        private final long version;
+        // Changed lines, and every line for when the cart has to move
+        private final List<Line> lines;
+        private final List<Line> allLines;
+        private final List<Integer> deleted;
+        // Its cart was no longer active, so all lines are written to another one
+        private boolean moved;
+
+        private FlushItem(MemoryCart cart, Long userId, Long cartId, long version, List<Line> lines,
+                          List<Line> allLines, List<Integer> deleted) {
+            this.cart = cart;
+            this.userId = userId;
+            this.cartId = cartId;
+            this.version = version;
+            this.lines = lines;
+            this.allLines = allLines;
+            this.deleted = deleted;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.merko.merko_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset-paginated catalog listings.
+ * Encodes the (updatedAt, id) of the last row of a page so the next page
+ * can resume with a seek instead of an OFFSET scan.
+ */
+public final class CatalogCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime updatedAt;
+    private final Integer id;
+
+    public CatalogCursor(LocalDateTime updatedAt, Integer id) {
+        this.updatedAt = updatedAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = updatedAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CatalogCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            LocalDateTime updatedAt = LocalDateTime.parse(raw.substring(0, separator));
+            Integer id = Integer.valueOf(raw.substring(separator + 1));
+            return new CatalogCursor(updatedAt, id);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Invalid catalog cursor");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.merko.merko_backend.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader that yields one record at a time, so large uploads
+ * are parsed without holding the whole file in memory.
+ * Supports quoted fields, escaped quotes ("") and line breaks inside quotes.
+ */
+public final class CsvReader {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private int lineNumber = 1;
+    private int recordLine;
+    private int pushedBack = EOF - 1;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Line the most recently returned record started on
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    // Next record, or null at end of input; blank lines are skipped
+    public List<String> next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                return null;
+            }
+            if (c == '\r' || c == '\n') {
+                consumeLineEnd(c);
+                continue;
+            }
+            unread(c);
+            recordLine = lineNumber;
+            return readRecord();
+        }
+    }
+
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == EOF) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == EOF) {
+                fields.add(field.toString());
+                if (c != EOF) {
+                    consumeLineEnd(c);
+                }
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private void consumeLineEnd(int c) throws IOException {
+        if (c == '\r') {
+            int following = read();
+            if (following != '\n') {
+                unread(following);
+            }
+        }
+        lineNumber++;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != EOF - 1) {
+            int c = pushedBack;
+            pushedBack = EOF - 1;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,43 @@
+package com.merko.merko_backend.util;
+
+/**
+ * Per-thread count of SQL statements issued through Hibernate.
+ * Reset at the start of every request by QueryCountFilter and incremented by QueryCountInspector,
+ * so a service method can check how many statements a code path actually ran.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private QueryCounter() {
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static void increment() {
+        COUNT.get()[0]++;
+    }
+
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    public static void clear() {
+        COUNT.remove();
+    }
+
+    // Statements executed since the given mark (taken with current())
+    public static long since(long mark) {
+        return current() - mark;
+    }
+
+    public static void assertAtMost(long mark, long budget, String context) {
+        long executed = since(mark);
+        if (executed > budget) {
+            throw new IllegalStateException(context + " executed " + executed
+                    + " SQL statements, expected at most " + budget);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.merko.merko_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque token for catalog delta sync: the last product change sequence a client has seen.
+ */
+public final class SyncToken {
+
+    private static final String PREFIX = "c1:";
+
+    private SyncToken() {
+    }
+
+    public static String encode(long seq) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + seq).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid sync token");
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid sync token");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+-- Merge duplicate cart lines before the unique (cart_id, product_id) key is added
+-- Run this SQL script in your merco_db database before starting the new version
+
+-- Sum the quantities of each duplicated product into its oldest line
+UPDATE cart_items ci
+JOIN (
+    SELECT cart_id, product_id, MIN(id) AS keep_id, SUM(quantity) AS total_quantity
+    FROM cart_items
+    GROUP BY cart_id, product_id
+    HAVING COUNT(*) > 1
+) dup ON ci.id = dup.keep_id
+SET ci.quantity = dup.total_quantity;
+
+-- Delete the newer duplicates
+DELETE ci FROM cart_items ci
+JOIN cart_items older ON older.cart_id = ci.cart_id
+    AND older.product_id = ci.product_id
+    AND older.id < ci.id;
+
+-- Hibernate (ddl-auto=update) adds the key on startup; to add it by hand instead:
+-- ALTER TABLE cart_items ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id);
@@ -0,0 +1,87 @@
+package com.merko.merko_backend;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.entity.UserRole;
+import com.merko.merko_backend.entity.UserStatus;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Users and products for tests that run against the configured MySQL database. Everything
+ * created through an instance, and the carts, orders and ledger rows hanging off it, is
+ * deleted again by {@link #cleanUp()}.
+ */
+public class TestFixtures {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    public TestFixtures(JdbcTemplate jdbcTemplate, UserRepository userRepository, ProductRepository productRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+    }
+
+    public User merchant() {
+        return user(UserRole.MERCHANT);
+    }
+
+    public User supplier() {
+        return user(UserRole.SUPPLIER);
+    }
+
+    public Product product(User supplier, int stock, BigDecimal price) {
+        Product product = new Product();
+        product.setUserId(supplier.getId());
+        product.setSupplierCompanyName(supplier.getCompanyName());
+        product.setProductName("Test product " + UUID.randomUUID());
+        product.setSku("T-" + UUID.randomUUID());
+        product.setCategory("Test");
+        product.setPrice(price);
+        product.setStockQuantity(stock);
+        product.setStatus("Active");
+        return productRepository.save(product);
+    }
+
+    public void image(Product product, String imageUrl) {
+        jdbcTemplate.update("INSERT INTO product_images (image_url, product_id) VALUES (?, ?)", imageUrl, product.getId());
+    }
+
+    public void cleanUp() {
+        for (Long userId : userIds) {
+            jdbcTemplate.update("DELETE oi FROM order_items oi JOIN orders o ON o.id = oi.order_id WHERE o.user_id = ?", userId);
+            jdbcTemplate.update("DELETE oi FROM order_items oi JOIN products p ON p.id = oi.product_id WHERE p.user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE ci FROM cart_items ci JOIN carts c ON c.id = ci.cart_id WHERE c.user_id = ?", userId);
+            jdbcTemplate.update("DELETE ci FROM cart_items ci JOIN products p ON p.id = ci.product_id WHERE p.user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM carts WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE i FROM product_images i JOIN products p ON p.id = i.product_id WHERE p.user_id = ?", userId);
+            jdbcTemplate.update("DELETE s FROM stock_snapshots s JOIN products p ON p.id = s.product_id WHERE p.user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM stock_movements WHERE supplier_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM product_changes WHERE supplier_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM products WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+        userIds.clear();
+    }
+
+    private User user(UserRole role) {
+        String tag = UUID.randomUUID().toString();
+        User user = new User("Test", role.name(), "test-" + tag + "@merko.test", "secret", "0000000000",
+                "Test Co " + tag, "Testing", role);
+        user.setStatus(UserStatus.APPROVED);
+        User saved = userRepository.save(user);
+        userIds.add(saved.getId());
+        return saved;
+    }
+}
@@ -0,0 +1,96 @@
+package com.merko.merko_backend.controller;
+
+import com.merko.merko_backend.service.CatalogVersionTracker;
+import com.merko.merko_backend.service.ProductChangeEvent;
+import com.merko.merko_backend.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Conditional listing requests against a mocked ProductService
+class ProductControllerTests {
+
+    private final ProductController controller = new ProductController();
+    private final ProductService productService = mock(ProductService.class);
+    private final CatalogVersionTracker catalogVersions = new CatalogVersionTracker();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "productService", productService);
+        ReflectionTestUtils.setField(controller, "catalogVersions", catalogVersions);
+        when(productService.getAllProducts("m@merko.test", "MERCHANT")).thenReturn(List.of());
+        when(productService.getActiveProductsBySupplier(5L, "m@merko.test")).thenReturn(List.of());
+    }
+
+    @Test
+    void anUnchangedCatalogIsNotModified() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        ResponseEntity<?> body = getAll(get(), first);
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        assertThat(body.getStatusCode().value()).isEqualTo(200);
+        assertThat(etag).startsWith("W/");
+        assertThat(first.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("private, no-cache");
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertThat(getAll(conditional(etag), second)).isNull();
+        assertThat(second.getStatus()).isEqualTo(304);
+        verify(productService, times(1)).getAllProducts("m@merko.test", "MERCHANT");
+    }
+
+    @Test
+    void aProductChangeInvalidatesTheCatalogTag() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        getAll(get(), first);
+
+        catalogVersions.onProductChange(ProductChangeEvent.deleted(1, 9L));
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertThat(getAll(conditional(first.getHeader(HttpHeaders.ETAG)), second)).isNotNull();
+        assertThat(second.getStatus()).isEqualTo(200);
+        verify(productService, times(2)).getAllProducts("m@merko.test", "MERCHANT");
+    }
+
+    @Test
+    void anotherSuppliersChangeKeepsASupplierListingNotModified() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        getSupplier(get(), first);
+
+        catalogVersions.onProductChange(ProductChangeEvent.deleted(1, 9L));
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertThat(getSupplier(conditional(first.getHeader(HttpHeaders.ETAG)), second)).isNull();
+        assertThat(second.getStatus()).isEqualTo(304);
+    }
+
+    private ResponseEntity<?> getAll(MockHttpServletRequest request, MockHttpServletResponse response) {
+        return controller.getAllProducts("m@merko.test", "MERCHANT", null, new ServletWebRequest(request, response), response);
+    }
+
+    private ResponseEntity<?> getSupplier(MockHttpServletRequest request, MockHttpServletResponse response) {
+        return controller.getSupplierProducts(5L, "m@merko.test", null, new ServletWebRequest(request, response), response);
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/products");
+    }
+
+    private static MockHttpServletRequest conditional(String etag) {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        return request;
+    }
+}
@@ -0,0 +1,135 @@
+package com.merko.merko_backend.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadControllerTests {
+
+    @TempDir
+    Path root;
+
+    private Path uploadDir;
+
+    private final UploadController controller = new UploadController();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploadDir = Files.createDirectory(root.resolve("uploads"));
+        ReflectionTestUtils.setField(controller, "servletContext", new MockServletContext());
+        ReflectionTestUtils.setField(controller, "uploadDir", uploadDir.toString());
+        Files.writeString(uploadDir.resolve("image.jpg"), "0123456789");
+    }
+
+    @Test
+    void servesTheWholeFileAsImmutable() throws IOException {
+        MockHttpServletResponse response = serve(get("/uploads/image.jpg"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=31536000, immutable");
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).matches("\"[0-9a-f]+-[0-9a-f]+\"");
+    }
+
+    @Test
+    void answersAMatchingEtagWithNotModified() throws IOException {
+        String etag = serve(get("/uploads/image.jpg")).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = get("/uploads/image.jpg");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag);
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void servesSingleByteRanges() throws IOException {
+        assertRange("bytes=2-5", "bytes 2-5/10", "2345");
+        assertRange("bytes=7-", "bytes 7-9/10", "789");
+        assertRange("bytes=-3", "bytes 7-9/10", "789");
+        assertRange("bytes=-30", "bytes 0-9/10", "0123456789");
+        assertRange("bytes=4-100", "bytes 4-9/10", "456789");
+    }
+
+    @Test
+    void rejectsARangeBeyondTheEnd() throws IOException {
+        MockHttpServletResponse response = serve(range("bytes=10-"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(serve(range("bytes=12-15")).getStatus()).isEqualTo(416);
+    }
+
+    @Test
+    void ignoresMultipleMalformedAndStaleRanges() throws IOException {
+        for (String header : new String[]{"bytes=0-1,4-5", "items=0-1", "bytes=a-b", "bytes=5", "bytes=5-2"}) {
+            MockHttpServletResponse response = serve(range(header));
+            assertThat(response.getStatus()).as(header).isEqualTo(200);
+            assertThat(response.getContentAsString()).as(header).isEqualTo("0123456789");
+        }
+
+        MockHttpServletRequest stale = range("bytes=2-5");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"old-etag\"");
+        assertThat(serve(stale).getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void answersHeadWithoutABody() throws IOException {
+        MockHttpServletRequest request = get("/uploads/image.jpg");
+        request.setMethod("HEAD");
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void refusesPathsOutsideTheUploadDirectory() throws IOException {
+        Files.writeString(root.resolve("secret.txt"), "secret");
+
+        assertThat(serve(get("/uploads/../secret.txt")).getStatus()).isEqualTo(404);
+        assertThat(serve(get("/uploads/%2e%2e/secret.txt")).getStatus()).isEqualTo(404);
+        assertThat(serve(get("/uploads/")).getStatus()).isEqualTo(404);
+        assertThat(serve(get("/uploads/missing.jpg")).getStatus()).isEqualTo(404);
+    }
+
+    private void assertRange(String header, String contentRange, String body) throws IOException {
+        MockHttpServletResponse response = serve(range(header));
+
+        assertThat(response.getStatus()).as(header).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).as(header).isEqualTo(contentRange);
+        assertThat(response.getContentLengthLong()).as(header).isEqualTo(body.length());
+        assertThat(response.getContentAsString()).as(header).isEqualTo(body);
+    }
+
+    private static MockHttpServletRequest range(String header) {
+        MockHttpServletRequest request = get("/uploads/image.jpg");
+        request.addHeader(HttpHeaders.RANGE, header);
+        return request;
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serveUpload(request, response);
+        return response;
+    }
+}
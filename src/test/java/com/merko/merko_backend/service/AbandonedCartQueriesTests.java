@@ -0,0 +1,131 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.dto.AddToCartRequest;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.CartRepository;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The reaper's idleness checks; runs against the configured MySQL database
+@SpringBootTest(properties = {
+        "cart.store.mode=database",
+        "cart.reaper.initial-delay-ms=3600000",
+        "cart.reaper.idle-hours=1",
+        "cart.reaper.chunk-size=1",
+        "cart.reaper.chunk-pause-ms=0"
+})
+class AbandonedCartQueriesTests {
+
+    @Autowired
+    private AbandonedCartReaper reaper;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TestFixtures fixtures;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+        product = fixtures.product(fixtures.supplier(), 10, new BigDecimal("1.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void reapsOnlyCartsWhoseRowAndLinesAreAllIdle() {
+        User idle = merchantWithCart();
+        age(idle, true, true);
+        User recentLine = merchantWithCart();
+        age(recentLine, true, false);
+        User recent = merchantWithCart();
+
+        reaper.reap();
+
+        assertThat(status(idle)).isEqualTo("ABANDONED");
+        assertThat(lineCount(idle)).isZero();
+        assertThat(status(recentLine)).isEqualTo("ACTIVE");
+        assertThat(lineCount(recentLine)).isEqualTo(1);
+        assertThat(status(recent)).isEqualTo("ACTIVE");
+    }
+
+    @Test
+    void aCartUsedAfterItWasSelectedIsNotAbandoned() {
+        User merchant = merchantWithCart();
+        age(merchant, true, true);
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        Long cartId = cartRepository.findActiveCartByUserId(merchant.getId()).orElseThrow().getId();
+        assertThat(cartRepository.findIdleCartIds(cartId - 1, cutoff, PageRequest.of(0, 1))).containsExactly(cartId);
+
+        // Added to between the reaper's selection and its update
+        cartService.addToCart(new AddToCartRequest(product.getId(), 1), merchant.getEmail());
+
+        Integer marked = new TransactionTemplate(transactionManager).execute(status ->
+                cartRepository.markAbandoned(List.of(cartId), cutoff, LocalDateTime.now()));
+        assertThat(marked).isZero();
+        assertThat(status(merchant)).isEqualTo("ACTIVE");
+    }
+
+    private User merchantWithCart() {
+        User merchant = fixtures.merchant();
+        cartService.addToCart(new AddToCartRequest(product.getId(), 1), merchant.getEmail());
+        return merchant;
+    }
+
+    private void age(User merchant, boolean cart, boolean lines) {
+        Timestamp old = Timestamp.valueOf(LocalDateTime.now().minusHours(2));
+        if (cart) {
+            jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE user_id = ?", old, merchant.getId());
+        }
+        if (lines) {
+            jdbcTemplate.update("UPDATE cart_items ci JOIN carts c ON c.id = ci.cart_id SET ci.updated_at = ? "
+                    + "WHERE c.user_id = ?", old, merchant.getId());
+        }
+    }
+
+    private String status(User merchant) {
+        return jdbcTemplate.queryForObject("SELECT status FROM carts WHERE user_id = ?", String.class, merchant.getId());
+    }
+
+    private Integer lineCount(User merchant) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items ci JOIN carts c ON c.id = ci.cart_id "
+                + "WHERE c.user_id = ?", Integer.class, merchant.getId());
+    }
+}
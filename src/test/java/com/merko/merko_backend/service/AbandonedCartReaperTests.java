@@ -0,0 +1,103 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.repository.CartItemRepository;
+import com.merko.merko_backend.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Chunking and the in-memory store check against mocked repositories and transaction manager
+class AbandonedCartReaperTests {
+
+    private final AbandonedCartReaper reaper = new AbandonedCartReaper();
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+    private final WriteBehindCartStore cartStore = mock(WriteBehindCartStore.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reaper, "cartRepository", cartRepository);
+        ReflectionTestUtils.setField(reaper, "cartItemRepository", cartItemRepository);
+        ReflectionTestUtils.setField(reaper, "cartStore", cartStore);
+        ReflectionTestUtils.setField(reaper, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(reaper, "enabled", true);
+        ReflectionTestUtils.setField(reaper, "idleHours", 1L);
+        ReflectionTestUtils.setField(reaper, "chunkSize", 2);
+        ReflectionTestUtils.setField(reaper, "chunkPauseMs", 0L);
+        when(cartStore.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void walksIdleCartsInKeysetChunks() {
+        when(cartRepository.findIdleCartIds(eq(0L), any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(cartRepository.findIdleCartIds(eq(2L), any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(5L));
+        when(cartRepository.findIdleCartIds(eq(5L), any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of());
+        when(cartStore.getHeldCartIds()).thenReturn(Set.of());
+        when(cartRepository.markAbandoned(anyCollection(), any(), any())).thenReturn(2, 1);
+        when(cartItemRepository.deleteItemsOfAbandonedCarts(anyCollection())).thenReturn(3, 4);
+
+        reaper.reap();
+
+        verify(cartRepository).markAbandoned(eq(List.of(1L, 2L)), any(), any());
+        verify(cartRepository).markAbandoned(eq(List.of(5L)), any(), any());
+        assertThat(reaper.getStats())
+                .containsEntry("runs", 1L)
+                .containsEntry("cartsAbandoned", 3L)
+                .containsEntry("itemsDeleted", 7L);
+    }
+
+    @Test
+    void cartsHeldInMemoryAreSkippedInsideTheTransaction() {
+        when(cartRepository.findIdleCartIds(eq(0L), any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(cartStore.getHeldCartIds()).thenReturn(Set.of(2L, 9L));
+
+        reaper.reap();
+
+        InOrder order = inOrder(transactionManager, cartStore, cartRepository, cartItemRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(cartStore).getHeldCartIds();
+        order.verify(cartRepository).markAbandoned(eq(List.of(1L)), any(), any());
+        order.verify(cartItemRepository).deleteItemsOfAbandonedCarts(List.of(1L));
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void aChunkOfHeldCartsWritesNothing() {
+        when(cartRepository.findIdleCartIds(eq(0L), any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(cartStore.getHeldCartIds()).thenReturn(Set.of(1L, 2L));
+
+        reaper.reap();
+
+        verify(cartRepository, never()).markAbandoned(anyCollection(), any(), any());
+        verifyNoInteractions(cartItemRepository);
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        ReflectionTestUtils.setField(reaper, "enabled", false);
+
+        reaper.reap();
+
+        verifyNoInteractions(cartRepository, cartItemRepository, cartStore, transactionManager);
+        assertThat(reaper.getStats()).containsEntry("runs", 0L);
+    }
+}
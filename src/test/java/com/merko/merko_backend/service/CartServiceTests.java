@@ -0,0 +1,191 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.dto.AddToCartRequest;
+import com.merko.merko_backend.dto.CartBatchAddResultDTO;
+import com.merko.merko_backend.dto.CartBatchLineResultDTO;
+import com.merko.merko_backend.dto.CartDTO;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import com.merko.merko_backend.util.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Carts stored directly in the configured MySQL database
+@SpringBootTest(properties = {
+        "cart.store.mode=database",
+        "cart.reaper.enabled=false"
+})
+class CartServiceTests {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void batchAddReportsEachLineAndSumsRepeatedProducts() {
+        User supplier = fixtures.supplier();
+        Product inCart = fixtures.product(supplier, 10, new BigDecimal("2.00"));
+        Product fresh = fixtures.product(supplier, 10, new BigDecimal("3.00"));
+        Product inactive = fixtures.product(supplier, 10, new BigDecimal("4.00"));
+        inactive.setStatus("Inactive");
+        productRepository.save(inactive);
+        User merchant = fixtures.merchant();
+        cartService.addToCart(new AddToCartRequest(inCart.getId(), 1), merchant.getEmail());
+
+        CartBatchAddResultDTO result = cartService.addToCartBatch(Arrays.asList(
+                new AddToCartRequest(inCart.getId(), 2),
+                new AddToCartRequest(fresh.getId(), 1),
+                new AddToCartRequest(fresh.getId(), 4),
+                new AddToCartRequest(inactive.getId(), 1),
+                new AddToCartRequest(fresh.getId(), 0),
+                new AddToCartRequest(-1, 1),
+                null), merchant.getEmail());
+
+        assertThat(result.getCartId()).isNotNull();
+        assertThat(result.getAddedCount()).isEqualTo(2);
+        assertThat(result.getUpdatedCount()).isEqualTo(1);
+        assertThat(result.getRejectedCount()).isEqualTo(4);
+        assertThat(result.getLines())
+                .extracting(CartBatchLineResultDTO::getIndex, CartBatchLineResultDTO::getStatus,
+                        CartBatchLineResultDTO::getCartQuantity, CartBatchLineResultDTO::getMessage)
+                .containsExactly(
+                        tuple(0, "UPDATED", 3, null),
+                        tuple(1, "ADDED", 5, null),
+                        tuple(2, "ADDED", 5, null),
+                        tuple(3, "REJECTED", null, "Product is not available"),
+                        tuple(4, "REJECTED", null, "Quantity must be greater than zero"),
+                        tuple(5, "REJECTED", null, "Product not found"),
+                        tuple(6, "REJECTED", null, "Product id is required"));
+        assertThat(lineCount(result.getCartId())).isEqualTo(2);
+    }
+
+    @Test
+    void batchAddRejectsEmptyAndOversizedBatches() {
+        User merchant = fixtures.merchant();
+
+        assertThatThrownBy(() -> cartService.addToCartBatch(List.of(), merchant.getEmail()))
+                .hasMessage("No items to add");
+        assertThatThrownBy(() -> cartService.addToCartBatch(
+                Collections.nCopies(501, new AddToCartRequest(1, 1)), merchant.getEmail()))
+                .hasMessage("A batch can add at most 500 items");
+    }
+
+    @Test
+    void batchAddIsForMerchantsOnly() {
+        User supplier = fixtures.supplier();
+
+        assertThatThrownBy(() -> cartService.addToCartBatch(List.of(new AddToCartRequest(1, 1)), supplier.getEmail()))
+                .hasMessage("Only merchants can add items to cart");
+    }
+
+    @Test
+    void concurrentAddsOfOneProductIncrementASingleLine() throws Exception {
+        Product product = fixtures.product(fixtures.supplier(), 10, new BigDecimal("2.00"));
+        User merchant = fixtures.merchant();
+        cartService.addToCart(new AddToCartRequest(product.getId(), 1), merchant.getEmail());
+
+        // The price changes after the line exists; increments keep the price it was added at
+        product.setPrice(new BigDecimal("9.00"));
+        productRepository.save(product);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                adds.add(pool.submit(() -> cartService.addToCart(new AddToCartRequest(product.getId(), 1),
+                        merchant.getEmail())));
+            }
+            for (Future<?> add : adds) {
+                add.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Map<String, Object>> lines = jdbcTemplate.queryForList("SELECT ci.quantity, ci.price_at_time "
+                + "FROM cart_items ci JOIN carts c ON c.id = ci.cart_id WHERE c.user_id = ?", merchant.getId());
+        assertThat(lines).singleElement().satisfies(line -> {
+            assertThat(((Number) line.get("quantity")).intValue()).isEqualTo(21);
+            assertThat((BigDecimal) line.get("price_at_time")).isEqualByComparingTo("2.00");
+        });
+    }
+
+    @Test
+    void cartViewCostsTheSameNumberOfQueriesWhateverItsSize() {
+        User supplier = fixtures.supplier();
+        User small = fixtures.merchant();
+        User large = fixtures.merchant();
+        List<AddToCartRequest> smallLines = new ArrayList<>();
+        List<AddToCartRequest> largeLines = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Product product = fixtures.product(supplier, 10, new BigDecimal("1.50"));
+            fixtures.image(product, "http://localhost:8080/uploads/" + product.getId() + "-a.jpg");
+            fixtures.image(product, "http://localhost:8080/uploads/" + product.getId() + "-b.jpg");
+            if (i < 3) {
+                smallLines.add(new AddToCartRequest(product.getId(), 2));
+            }
+            largeLines.add(new AddToCartRequest(product.getId(), 2));
+        }
+        cartService.addToCartBatch(smallLines, small.getEmail());
+        cartService.addToCartBatch(largeLines, large.getEmail());
+
+        long mark = QueryCounter.current();
+        cartService.getMyCart(small.getEmail());
+        long smallQueries = QueryCounter.since(mark);
+
+        mark = QueryCounter.current();
+        CartDTO cart = cartService.getMyCart(large.getEmail());
+        long largeQueries = QueryCounter.since(mark);
+
+        assertThat(largeQueries).isEqualTo(smallQueries);
+        assertThat(cart.getCartItems()).hasSize(30);
+        assertThat(cart.getTotalQuantity()).isEqualTo(60);
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("90.00");
+        assertThat(cart.getCartItems()).allSatisfy(item -> assertThat(item.getImageUrls()).hasSize(2));
+    }
+
+    private Integer lineCount(Long cartId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", Integer.class, cartId);
+    }
+}
@@ -0,0 +1,50 @@
+package com.merko.merko_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogVersionTrackerTests {
+
+    private final CatalogVersionTracker tracker = new CatalogVersionTracker();
+
+    @Test
+    void tagsAreWeakAndStableUntilAProductChanges() {
+        String catalog = tracker.catalogTag("MERCHANT");
+        String supplier = tracker.supplierTag(5L);
+
+        assertThat(catalog).startsWith("W/\"").endsWith("\"");
+        assertThat(supplier).startsWith("W/\"").endsWith("\"");
+        assertThat(tracker.catalogTag("MERCHANT")).isEqualTo(catalog);
+        assertThat(tracker.supplierTag(5L)).isEqualTo(supplier);
+
+        tracker.onProductChange(ProductChangeEvent.deleted(1, 5L));
+
+        assertThat(tracker.catalogTag("MERCHANT")).isNotEqualTo(catalog);
+        assertThat(tracker.supplierTag(5L)).isNotEqualTo(supplier);
+    }
+
+    @Test
+    void theCatalogTagDependsOnTheVariant() {
+        assertThat(tracker.catalogTag("MERCHANT")).isNotEqualTo(tracker.catalogTag("SUPPLIER"));
+    }
+
+    @Test
+    void aChangeOnlyMovesItsOwnSupplierTag() {
+        String own = tracker.supplierTag(5L);
+        String other = tracker.supplierTag(6L);
+
+        tracker.onProductChange(ProductChangeEvent.deleted(1, 5L));
+
+        assertThat(tracker.supplierTag(5L)).isNotEqualTo(own);
+        assertThat(tracker.supplierTag(6L)).isEqualTo(other);
+    }
+
+    @Test
+    void tagsDoNotMatchAcrossRestarts() throws InterruptedException {
+        String before = tracker.catalogTag("MERCHANT");
+        Thread.sleep(2);
+
+        assertThat(new CatalogVersionTracker().catalogTag("MERCHANT")).isNotEqualTo(before);
+    }
+}
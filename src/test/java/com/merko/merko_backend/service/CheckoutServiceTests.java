@@ -0,0 +1,126 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.dto.AddToCartRequest;
+import com.merko.merko_backend.dto.CheckoutRequest;
+import com.merko.merko_backend.dto.PaymentInfo;
+import com.merko.merko_backend.dto.ShippingInfo;
+import com.merko.merko_backend.entity.Order;
+import com.merko.merko_backend.entity.OrderItem;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.CartRepository;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Checkout with the write-behind cart store; runs against the configured MySQL database
+@SpringBootTest(properties = {
+        "cart.store.mode=memory",
+        "cart.store.log-dir=target/test-cart-log/checkout",
+        "cart.store.flush-interval-ms=3600000",
+        "cart.reaper.enabled=false"
+})
+class CheckoutServiceTests {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void checkoutOrdersACartThatOnlyExistsInMemory() {
+        User supplier = fixtures.supplier();
+        Product product = fixtures.product(supplier, 50, new BigDecimal("4.50"));
+        User merchant = fixtures.merchant();
+
+        cartService.addToCart(new AddToCartRequest(product.getId(), 3), merchant.getEmail());
+        assertThat(cartRepository.findActiveCartByUserId(merchant.getId())).isEmpty();
+
+        Order order = checkoutService.processCheckout(merchant.getEmail(), checkoutRequest());
+
+        assertThat(order.getOrderItems()).hasSize(1);
+        OrderItem item = order.getOrderItems().get(0);
+        assertThat(item.getProduct().getId()).isEqualTo(product.getId());
+        assertThat(item.getQuantity()).isEqualTo(3);
+        assertThat(order.getSubtotal()).isEqualByComparingTo("13.50");
+
+        // The ordered cart is closed and forgotten; the next add starts a new one
+        assertThat(cartRepository.findActiveCartByUserId(merchant.getId())).isEmpty();
+        assertThat(cartStore.view(merchant.getId()).getLines()).isEmpty();
+        assertThat(cartStore.view(merchant.getId()).getCartId()).isNull();
+    }
+
+    @Test
+    void checkoutOrdersTheLatestStateOfAnAlreadyFlushedCart() {
+        User supplier = fixtures.supplier();
+        Product first = fixtures.product(supplier, 50, new BigDecimal("2.00"));
+        Product second = fixtures.product(supplier, 50, new BigDecimal("5.00"));
+        User merchant = fixtures.merchant();
+
+        cartService.addToCart(new AddToCartRequest(first.getId(), 1), merchant.getEmail());
+        cartStore.flush();
+        assertThat(cartRepository.findActiveCartByUserId(merchant.getId())).isPresent();
+
+        // Changed in memory only after the cart row exists
+        cartService.addToCart(new AddToCartRequest(first.getId(), 1), merchant.getEmail());
+        cartService.addToCart(new AddToCartRequest(second.getId(), 2), merchant.getEmail());
+
+        Order order = checkoutService.processCheckout(merchant.getEmail(), checkoutRequest());
+
+        assertThat(order.getOrderItems()).hasSize(2);
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            quantities.put(item.getProduct().getId(), item.getQuantity());
+        }
+        assertThat(quantities).containsEntry(first.getId(), 2).containsEntry(second.getId(), 2);
+        assertThat(cartRepository.findActiveCartByUserId(merchant.getId())).isEmpty();
+        assertThat(cartStore.view(merchant.getId()).getLines()).isEmpty();
+    }
+
+    private static CheckoutRequest checkoutRequest() {
+        ShippingInfo shipping = new ShippingInfo("Test", "Merchant", "Test Co", "1 Main St", null,
+                "Springfield", "IL", "62701", "0000000000");
+        PaymentInfo payment = new PaymentInfo("NET_30", null, null, null, null, null);
+        return new CheckoutRequest(shipping, payment, "STANDARD");
+    }
+}
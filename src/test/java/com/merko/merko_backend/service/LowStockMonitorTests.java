@@ -0,0 +1,122 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.dto.LowStockItemDTO;
+import com.merko.merko_backend.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// Alerts are published on the monitor's dispatcher thread to a mocked publisher
+class LowStockMonitorTests {
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private LowStockMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new LowStockMonitor(10);
+        ReflectionTestUtils.setField(monitor, "eventPublisher", eventPublisher);
+        monitor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.shutdown();
+    }
+
+    @Test
+    void productsLowAtStartupAreListedWithoutAlerts() {
+        monitor.loadFromScan(List.of(product(1, 5L, 3, 5), product(2, 5L, 10, 5), product(3, 6L, 0, 1)));
+        monitor.scanCompleted();
+
+        assertThat(monitor.getLowStock(5L)).extracting(LowStockItemDTO::getProductId).containsExactly(1);
+        assertThat(monitor.getLowStock(6L)).extracting(LowStockItemDTO::getProductId).containsExactly(3);
+        verify(eventPublisher, after(100).never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void crossingTheThresholdPublishesEnteredThenCleared() {
+        monitor.scanCompleted();
+
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(1, 5L, 4, 5)));
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(1, 5L, 2, 5)));
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(1, 5L, 9, 5)));
+
+        ArgumentCaptor<LowStockAlertEvent> alerts = ArgumentCaptor.forClass(LowStockAlertEvent.class);
+        verify(eventPublisher, timeout(1000).times(2)).publishEvent(alerts.capture());
+        assertThat(alerts.getAllValues()).extracting(LowStockAlertEvent::getType)
+                .containsExactly(LowStockAlertEvent.Type.ENTERED, LowStockAlertEvent.Type.CLEARED);
+        assertThat(monitor.getLowStock(5L)).isEmpty();
+    }
+
+    @Test
+    void untrackedAndDeletedProductsLeaveTheList() {
+        monitor.scanCompleted();
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(1, 5L, 1, 5)));
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(2, 5L, 1, 5)));
+
+        Product untracked = product(1, 5L, 1, 5);
+        untracked.setTrackInventory(" No ");
+        monitor.onProductChange(ProductChangeEvent.updated(untracked));
+        monitor.onProductChange(ProductChangeEvent.deleted(2, 5L));
+
+        assertThat(monitor.getLowStock(5L)).isEmpty();
+    }
+
+    @Test
+    void aChangeDuringTheStartupScanWinsOverTheScannedRow() {
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(1, 5L, 20, 5)));
+        monitor.loadFromScan(List.of(product(1, 5L, 2, 5)));
+        monitor.scanCompleted();
+
+        assertThat(monitor.getLowStock(5L)).isEmpty();
+    }
+
+    @Test
+    void mostUrgentProductsComeFirst() {
+        monitor.loadFromScan(List.of(product(1, 5L, 4, 5), product(2, 5L, 0, 10), product(3, 5L, 5, 5)));
+        monitor.scanCompleted();
+
+        assertThat(monitor.getLowStock(5L)).extracting(LowStockItemDTO::getProductId).containsExactly(2, 1, 3);
+    }
+
+    @Test
+    void aFullQueueDropsAlertsInsteadOfBlocking() {
+        monitor.shutdown();
+        monitor = new LowStockMonitor(1);
+        ReflectionTestUtils.setField(monitor, "eventPublisher", eventPublisher);
+        monitor.scanCompleted();
+
+        // Dispatcher not started, so nothing drains the queue
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(1, 5L, 1, 5)));
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(2, 5L, 1, 5)));
+        monitor.onProductChange(ProductChangeEvent.stockChanged(product(3, 5L, 1, 5)));
+
+        assertThat(monitor.getDroppedAlerts()).isEqualTo(2);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private static Product product(int id, Long supplierId, int stock, int threshold) {
+        Product product = new Product();
+        product.setId(id);
+        product.setUserId(supplierId);
+        product.setProductName("Product " + id);
+        product.setSku("SKU-" + id);
+        product.setStockQuantity(stock);
+        product.setLowStockAlert(threshold);
+        return product;
+    }
+}
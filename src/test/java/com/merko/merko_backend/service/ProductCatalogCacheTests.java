@@ -0,0 +1,68 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCatalogCacheTests {
+
+    private static final LocalDateTime VERSION = LocalDateTime.of(2025, 5, 1, 12, 0);
+
+    private final ProductCatalogCache cache = new ProductCatalogCache(2, 10, 300);
+
+    @Test
+    void returnsAProductOnlyForTheRowVersionItWasBuiltFrom() {
+        cache.putProduct(dto(1, VERSION));
+
+        assertThat(cache.getProduct(1, VERSION)).isNotNull();
+        assertThat(cache.getProduct(1, VERSION.plusSeconds(1))).isNull();
+        // The stale entry was dropped
+        assertThat(cache.getProduct(1, VERSION)).isNull();
+    }
+
+    @Test
+    void aChangeInvalidatesTheProductAndItsSupplierList() {
+        cache.putProduct(dto(1, VERSION));
+        cache.putSupplierProducts(9L, List.of(dto(1, VERSION)), cache.currentGeneration());
+        cache.putSupplierProducts(10L, List.of(dto(2, VERSION)), cache.currentGeneration());
+
+        cache.onProductChange(ProductChangeEvent.deleted(1, 9L));
+
+        assertThat(cache.getProduct(1, VERSION)).isNull();
+        assertThat(cache.getSupplierProducts(9L)).isNull();
+        assertThat(cache.getSupplierProducts(10L)).hasSize(1);
+    }
+
+    @Test
+    void aListLoadedBeforeAChangeIsNotCached() {
+        long generation = cache.currentGeneration();
+        cache.onProductChange(ProductChangeEvent.deleted(3, 11L));
+
+        cache.putSupplierProducts(9L, List.of(dto(1, VERSION)), generation);
+
+        assertThat(cache.getSupplierProducts(9L)).isNull();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedProductBeyondTheLimit() {
+        cache.putProduct(dto(1, VERSION));
+        cache.putProduct(dto(2, VERSION));
+        cache.getProduct(1, VERSION);
+        cache.putProduct(dto(3, VERSION));
+
+        assertThat(cache.getProduct(1, VERSION)).isNotNull();
+        assertThat(cache.getProduct(2, VERSION)).isNull();
+        assertThat(cache.getStats()).containsEntry("productEvictions", 1L);
+    }
+
+    private static ProductDTO dto(Integer id, LocalDateTime updatedAt) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        dto.setUpdatedAt(updatedAt);
+        return dto;
+    }
+}
@@ -0,0 +1,102 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.ProductChange;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// The outbox against a mocked JdbcTemplate, with transaction synchronization driven by hand
+class ProductChangeLogTests {
+
+    private final ProductChangeLog changeLog = new ProductChangeLog();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    ProductChangeLogTests() {
+        ReflectionTestUtils.setField(changeLog, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(changeLog, "entityManager", entityManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.unbindResourceIfPossible(changeLog);
+    }
+
+    @Test
+    void changesOutsideATransactionAreWrittenImmediately() {
+        changeLog.onProductChange(ProductChangeEvent.deleted(1, 5L));
+
+        assertThat(insertedChanges()).extracting(ProductChange::getProductId).containsExactly(1);
+    }
+
+    @Test
+    void changesInATransactionAreWrittenAsOneBatchBeforeItCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        changeLog.onProductChange(ProductChangeEvent.deleted(1, 5L));
+        changeLog.onProductChange(ProductChangeEvent.deleted(2, 5L));
+        verifyNoInteractions(jdbcTemplate);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        synchronizations.get(0).beforeCommit(false);
+
+        // Pending entity writes take their row locks before the append lock is held
+        InOrder order = inOrder(entityManager, jdbcTemplate);
+        order.verify(entityManager).flush();
+        order.verify(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(insertedChanges()).extracting(ProductChange::getProductId, ProductChange::getChangeType)
+                .containsExactly(tuple(1, "DELETED"), tuple(2, "DELETED"));
+
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(TransactionSynchronizationManager.hasResource(changeLog)).isFalse();
+    }
+
+    @Test
+    void aRolledBackTransactionWritesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        changeLog.onProductChange(ProductChangeEvent.deleted(1, 5L));
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(TransactionSynchronizationManager.hasResource(changeLog)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProductChange> insertedChanges() {
+        ArgumentCaptor<Collection<ProductChange>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        return List.copyOf(batch.getValue());
+    }
+}
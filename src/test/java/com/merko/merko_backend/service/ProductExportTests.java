@@ -0,0 +1,82 @@
+package com.merko.merko_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Streams the export from the configured MySQL database
+@SpringBootTest
+class ProductExportTests {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void writesOneLinePerActiveProductWithItsImages() throws Exception {
+        User supplier = fixtures.supplier();
+        Product withImages = fixtures.product(supplier, 5, new BigDecimal("12.00"));
+        fixtures.image(withImages, "export-a.jpg");
+        fixtures.image(withImages, "export-b.jpg");
+        Product withoutImages = fixtures.product(supplier, 5, new BigDecimal("3.00"));
+        Product draft = fixtures.product(supplier, 5, new BigDecimal("3.00"));
+        draft.setStatus("Draft");
+        productRepository.save(draft);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        productService.exportActiveCatalog(fixtures.merchant().getEmail(), "MERCHANT").writeTo(out);
+
+        Map<Integer, JsonNode> exported = new HashMap<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode product = objectMapper.readTree(line);
+            assertThat(exported.put(product.get("id").asInt(), product)).as("product exported once").isNull();
+        }
+
+        assertThat(exported.get(withImages.getId()).get("imageUrls"))
+                .extracting(JsonNode::asText)
+                .containsExactly("/uploads/export-a.jpg", "/uploads/export-b.jpg");
+        assertThat(exported.get(withoutImages.getId()).path("imageUrls").size()).isZero();
+        assertThat(exported).doesNotContainKey(draft.getId());
+    }
+}
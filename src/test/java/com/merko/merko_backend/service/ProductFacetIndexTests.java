@@ -0,0 +1,107 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductFacetIndexTests {
+
+    private final ProductFacetIndex index = new ProductFacetIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.loadFromScan(List.of(
+                product(1, "Kitchen", "Bellona", "9.99", "Active"),
+                product(2, "Kitchen", "Bellona", "49.99", "Active"),
+                product(3, "Kitchen", "Oakline", "120.00", "Active"),
+                product(4, "Furniture", "Oakline", "499.99", "Active"),
+                product(5, "Furniture", "Bellona", "800.00", "Draft")));
+        index.scanCompleted();
+    }
+
+    @Test
+    void countsEveryActiveProductWithoutFilters() {
+        ProductFacetIndex.FacetCounts counts = index.facetCounts(Map.of());
+
+        assertThat(counts.getTotalMatches()).isEqualTo(4);
+        assertThat(counts.getFacets().get(ProductFacetIndex.CATEGORY)).containsExactly(
+                Map.entry("Furniture", 1), Map.entry("Kitchen", 3));
+        assertThat(counts.getFacets().get(ProductFacetIndex.BRAND)).containsExactly(
+                Map.entry("Bellona", 2), Map.entry("Oakline", 2));
+    }
+
+    @Test
+    void countsEachDimensionAgainstTheOtherDimensionsFilters() {
+        ProductFacetIndex.FacetCounts counts = index.facetCounts(Map.of(ProductFacetIndex.BRAND, Set.of("Oakline")));
+
+        assertThat(counts.getTotalMatches()).isEqualTo(2);
+        // The brand dimension ignores its own selection, so the other brand is still counted
+        assertThat(counts.getFacets().get(ProductFacetIndex.BRAND)).containsExactly(
+                Map.entry("Bellona", 2), Map.entry("Oakline", 2));
+        assertThat(counts.getFacets().get(ProductFacetIndex.CATEGORY)).containsExactly(
+                Map.entry("Furniture", 1), Map.entry("Kitchen", 1));
+    }
+
+    @Test
+    void orsValuesWithinADimensionAndAndsDimensions() {
+        Map<String, Set<String>> filters = Map.of(
+                ProductFacetIndex.PRICE_BAND, Set.of("0-10", "100-500"),
+                ProductFacetIndex.CATEGORY, Set.of("Kitchen"));
+
+        assertThat(ids(index.filter(filters, null, 10))).containsExactly(3, 1);
+    }
+
+    @Test
+    void pagesInDescendingIdOrderWithOneExtraKey() {
+        ProductFacetIndex.FilterResult first = index.filter(Map.of(), null, 2);
+        assertThat(ids(first)).containsExactly(4, 3, 2);
+        assertThat(first.getTotalMatches()).isEqualTo(4);
+
+        assertThat(ids(index.filter(Map.of(), 2, 2))).containsExactly(1);
+        assertThat(ids(index.filter(Map.of(), 1, 2))).isEmpty();
+    }
+
+    @Test
+    void keepsCountsCurrentAcrossChanges() {
+        index.onProductChange(ProductChangeEvent.updated(product(3, "Furniture", "Oakline", "120.00", "Active")));
+        index.onProductChange(ProductChangeEvent.updated(product(5, "Furniture", "Bellona", "800.00", "Active")));
+        index.onProductChange(ProductChangeEvent.deleted(1, 1L));
+
+        ProductFacetIndex.FacetCounts counts = index.facetCounts(Map.of());
+        assertThat(counts.getTotalMatches()).isEqualTo(4);
+        assertThat(counts.getFacets().get(ProductFacetIndex.CATEGORY)).containsExactly(
+                Map.entry("Furniture", 3), Map.entry("Kitchen", 1));
+        assertThat(counts.getFacets().get(ProductFacetIndex.PRICE_BAND)).doesNotContainKey("0-10");
+    }
+
+    @Test
+    void assignsPriceBands() {
+        assertThat(ProductFacetIndex.priceBand(new BigDecimal("9.99"))).isEqualTo("0-10");
+        assertThat(ProductFacetIndex.priceBand(new BigDecimal("10"))).isEqualTo("10-50");
+        assertThat(ProductFacetIndex.priceBand(new BigDecimal("500"))).isEqualTo("500+");
+        assertThat(ProductFacetIndex.priceBand(null)).isNull();
+    }
+
+    private static List<Integer> ids(ProductFacetIndex.FilterResult result) {
+        return result.getKeys().stream().map(ProductRepository.CatalogKey::getId).toList();
+    }
+
+    private static Product product(Integer id, String category, String brand, String price, String status) {
+        Product product = new Product();
+        product.setId(id);
+        product.setUserId(1L);
+        product.setCategory(category);
+        product.setBrand(brand);
+        product.setPrice(new BigDecimal(price));
+        product.setStatus(status);
+        return product;
+    }
+}
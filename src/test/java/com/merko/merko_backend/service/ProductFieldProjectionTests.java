@@ -0,0 +1,93 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.ProductImage;
+import com.merko.merko_backend.repository.ProductImageRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Query building against a mocked EntityManager and image repository
+class ProductFieldProjectionTests {
+
+    private final ProductFieldProjection projection = new ProductFieldProjection();
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ProductImageRepository productImageRepository = mock(ProductImageRepository.class);
+
+    ProductFieldProjectionTests() {
+        ReflectionTestUtils.setField(projection, "entityManager", entityManager);
+        ReflectionTestUtils.setField(projection, "productImageRepository", productImageRepository);
+    }
+
+    @Test
+    void parseAlwaysStartsWithIdAndDropsDuplicates() {
+        assertThat(projection.parse(" price, productName,,price ,id"))
+                .containsExactly("id", "price", "productName");
+    }
+
+    @Test
+    void parseRejectsUnknownFields() {
+        assertThatThrownBy(() -> projection.parse("price,password"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unknown product field: password");
+    }
+
+    @Test
+    void selectsOnlyTheRequestedColumns() {
+        TypedQuery<Object[]> query = query("SELECT p.id, p.price FROM Product p WHERE p.status = :status ORDER BY p.id");
+        when(query.getResultList()).thenReturn(List.<Object[]>of(new Object[] {1, 10}, new Object[] {2, 20}));
+
+        List<Map<String, Object>> rows = projection.query(projection.parse("price"), "p.status = :status",
+                Map.of("status", "Active"), "p.id", 50);
+
+        assertThat(rows).containsExactly(Map.of("id", 1, "price", 10), Map.of("id", 2, "price", 20));
+        verify(query).setParameter("status", "Active");
+        verify(query).setMaxResults(50);
+        verifyNoInteractions(productImageRepository);
+    }
+
+    @Test
+    void imageFieldsComeFromTheFirstImageOfEachProduct() {
+        TypedQuery<Object[]> query = query("SELECT p.id FROM Product p");
+        when(query.getResultList()).thenReturn(List.<Object[]>of(new Object[] {1}, new Object[] {2}));
+        when(productImageRepository.findFirstImagesByProductIds(anyList()))
+                .thenReturn(List.of(image(1, "http://localhost:8080/uploads/abc.jpg")));
+
+        List<Map<String, Object>> rows = projection.query(projection.parse("imageUrl,thumbnailUrl"), null,
+                Map.of(), null, null);
+
+        assertThat(rows.get(0)).containsEntry("imageUrl", "/uploads/abc.jpg")
+                .containsEntry("thumbnailUrl", "/uploads/thumb/abc.jpg.jpg");
+        assertThat(rows.get(1)).containsEntry("imageUrl", null).containsEntry("thumbnailUrl", null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Object[]> query(String jpql) {
+        TypedQuery<Object[]> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(eq(jpql), eq(Object[].class))).thenReturn(query);
+        return query;
+    }
+
+    private static ProductImage image(int productId, String url) {
+        Product product = new Product();
+        product.setId(productId);
+        ProductImage image = new ProductImage();
+        image.setProduct(product);
+        image.setImageUrl(url);
+        image.setRenditionStatus(ProductImage.RenditionStatus.READY);
+        return image;
+    }
+}
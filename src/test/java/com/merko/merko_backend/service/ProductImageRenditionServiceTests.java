@@ -0,0 +1,105 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.ProductImage;
+import com.merko.merko_backend.repository.ProductImageRepository;
+import com.merko.merko_backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// Renders real files in a temporary upload directory; the repositories are mocked
+class ProductImageRenditionServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private final ProductImageRepository productImageRepository = mock(ProductImageRepository.class);
+    private ProductImageRenditionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductImageRenditionService(1, 10);
+        ReflectionTestUtils.setField(service, "productImageRepository", productImageRepository);
+        ReflectionTestUtils.setField(service, "productRepository", mock(ProductRepository.class));
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "thumbnailSize", 240);
+        ReflectionTestUtils.setField(service, "mediumSize", 800);
+        ReflectionTestUtils.setField(service, "jpegQuality", 0.82f);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void rendersPendingImagesInTheBackgroundAndMarksThemReady() throws IOException {
+        ImageIO.write(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "png", uploadDir.resolve("photo.png").toFile());
+
+        service.onProductChange(ProductChangeEvent.updated(product(image(1L, "/uploads/photo.png"))));
+
+        verify(productImageRepository, timeout(10_000)).updateRenditionStatus(List.of(1L), ProductImage.RenditionStatus.READY);
+        BufferedImage medium = ImageIO.read(uploadDir.resolve("medium/photo.png.jpg").toFile());
+        BufferedImage thumbnail = ImageIO.read(uploadDir.resolve("thumb/photo.png.jpg").toFile());
+        assertThat(medium.getWidth()).isEqualTo(800);
+        assertThat(medium.getHeight()).isEqualTo(400);
+        assertThat(thumbnail.getWidth()).isEqualTo(240);
+        assertThat(service.hasRenditions("/uploads/photo.png")).isTrue();
+    }
+
+    @Test
+    void marksAnUnreadableImageFailed() throws IOException {
+        Files.writeString(uploadDir.resolve("broken.png"), "not an image");
+
+        service.onProductChange(ProductChangeEvent.updated(product(image(2L, "broken.png"))));
+
+        verify(productImageRepository, timeout(10_000)).updateRenditionStatus(List.of(2L), ProductImage.RenditionStatus.FAILED);
+        assertThat(service.hasRenditions("broken.png")).isFalse();
+    }
+
+    @Test
+    void pointsAtTheOriginalUntilTheRenditionIsReady() {
+        ProductImage image = image(3L, "/uploads/photo.png");
+        assertThat(ProductImageRenditionService.thumbnailUrl(image)).isEqualTo("/uploads/photo.png");
+
+        image.setRenditionStatus(ProductImage.RenditionStatus.READY);
+        assertThat(ProductImageRenditionService.thumbnailUrl(image)).isEqualTo("/uploads/thumb/photo.png.jpg");
+        assertThat(ProductImageRenditionService.mediumUrl(image)).isEqualTo("/uploads/medium/photo.png.jpg");
+    }
+
+    private static ProductImage image(Long id, String imageUrl) {
+        ProductImage image = new ProductImage();
+        image.setId(id);
+        image.setImageUrl(imageUrl);
+        image.setRenditionStatus(ProductImage.RenditionStatus.PENDING);
+        return image;
+    }
+
+    private static Product product(ProductImage image) {
+        Product product = new Product();
+        product.setId(1);
+        product.setUserId(1L);
+        image.setProduct(product);
+        product.getImages().add(image);
+        return product;
+    }
+}
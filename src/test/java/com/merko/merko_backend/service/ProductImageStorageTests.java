@@ -0,0 +1,165 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.repository.ProductImageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Stores into a temporary upload directory; image references are mocked
+class ProductImageStorageTests {
+
+    static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3};
+
+    @TempDir
+    Path uploadDir;
+
+    private final ProductImageRepository productImageRepository = mock(ProductImageRepository.class);
+    private final ProductImageRenditionService renditionService = mock(ProductImageRenditionService.class);
+    private ProductImageStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new ProductImageStorage(2, 4);
+        ReflectionTestUtils.setField(storage, "productImageRepository", productImageRepository);
+        ReflectionTestUtils.setField(storage, "renditionService", renditionService);
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(storage, "releaseGraceSeconds", 600L);
+        ReflectionTestUtils.setField(storage, "maxImageBytes", 1024L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.shutdown();
+    }
+
+    @Test
+    void namesFilesByTheirContentHash() throws Exception {
+        String fileName = storage.store(upload("Photo.PNG", PNG), "Photo.PNG");
+
+        assertThat(fileName).isEqualTo(sha256(PNG) + ".png");
+        assertThat(Files.readAllBytes(uploadDir.resolve(fileName))).isEqualTo(PNG);
+    }
+
+    @Test
+    void storesIdenticalUploadsOnce() throws Exception {
+        String first = storage.store(upload("a.png", PNG), "a.png");
+        String second = storage.store(upload("b.png", PNG), "b.png");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(files()).containsExactly(first);
+    }
+
+    @Test
+    void keepsAFileWhileAnotherRowReferencesIt() throws Exception {
+        String fileName = storage.store(upload("a.png", PNG), "a.png");
+        ReflectionTestUtils.setField(storage, "releaseGraceSeconds", 0L);
+        when(productImageRepository.countByImageUrl(fileName)).thenReturn(1L);
+
+        storage.release("/uploads/" + fileName);
+
+        assertThat(files()).containsExactly(fileName);
+    }
+
+    @Test
+    void keepsAFreshUploadThatHasNoRowYet() throws Exception {
+        String fileName = storage.store(upload("a.png", PNG), "a.png");
+
+        storage.release(fileName);
+
+        assertThat(files()).containsExactly(fileName);
+    }
+
+    @Test
+    void deletesTheFileAndItsRenditionsWithTheLastReference() throws Exception {
+        String fileName = storage.store(upload("a.png", PNG), "a.png");
+        ReflectionTestUtils.setField(storage, "releaseGraceSeconds", 0L);
+
+        storage.release("/uploads/" + fileName);
+
+        assertThat(files()).isEmpty();
+        verify(renditionService).deleteRenditions(fileName);
+    }
+
+    @Test
+    void storesSeveralUploadsInRequestOrder() throws Exception {
+        List<MultipartFile> uploads = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            byte[] content = Arrays.copyOf(PNG, PNG.length + 1);
+            content[PNG.length] = (byte) i;
+            uploads.add(upload("image" + i + ".png", content));
+            names.add("image" + i + ".png");
+            expected.add(sha256(content) + ".png");
+        }
+
+        assertThat(storage.storeAll(uploads, names)).containsExactlyElementsOf(expected);
+        assertThat(files()).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void failsTheRequestIfAnyUploadIsRejected() {
+        List<MultipartFile> uploads = List.of(upload("ok.png", PNG), upload("notes.png", "plain text".getBytes()));
+
+        assertThatThrownBy(() -> storage.storeAll(uploads, List.of("ok.png", "notes.png")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("File 'notes.png' is not a supported image (JPEG, PNG, GIF or WebP)");
+    }
+
+    @Test
+    void rejectsOversizedAndEmptyUploadsWithoutKeepingATempFile() {
+        byte[] large = Arrays.copyOf(PNG, 2048);
+
+        assertThatThrownBy(() -> storage.store(upload("large.png", large), "large.png"))
+                .hasMessageStartingWith("Image 'large.png' exceeds the maximum size");
+        assertThatThrownBy(() -> storage.store(upload("empty.png", new byte[0]), "empty.png"))
+                .hasMessage("File 'empty.png' is empty");
+        assertThat(uploadDir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    void recognizesTheSupportedFormatsByTheirLeadingBytes() throws Exception {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x00};
+        byte[] gif = {'G', 'I', 'F', '8', '9', 'a'};
+        byte[] webp = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'};
+
+        assertThat(storage.store(upload("a.jpg", jpeg), "a.jpg")).endsWith(".jpg");
+        assertThat(storage.store(upload("a.gif", gif), "a.gif")).endsWith(".gif");
+        assertThat(storage.store(upload("a.webp", webp), "a.webp")).endsWith(".webp");
+    }
+
+    static MockMultipartFile upload(String name, byte[] content) {
+        return new MockMultipartFile("images", name, "application/octet-stream", content);
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -0,0 +1,78 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.dto.ProductImportErrorDTO;
+import com.merko.merko_backend.dto.ProductImportResultDTO;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.User;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Imports into the configured MySQL database
+@SpringBootTest
+class ProductImportServiceTests {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void importsValidRowsAndReportsDuplicateAndInvalidSkus() {
+        User supplier = fixtures.supplier();
+        Product existing = fixtures.product(supplier, 1, new BigDecimal("1.00"));
+
+        String csv = "\uFEFFProduct Name,SKU,Price,Stock,Description\n"
+                + "Mug,MUG-1,4.50,10,\"Stoneware, 300ml\"\n"
+                + "Mug again,MUG-1,4.50,10,\n"
+                + "Old,\"" + existing.getSku() + "\",1.00,1,\n"
+                + ",NO-NAME,1.00,1,\n"
+                + "Plate,PLATE-1,not a price,1,\n"
+                + "Bowl,BOWL-1,7,3,\n";
+        ProductImportResultDTO result = productImportService.importCsv(
+                new MockMultipartFile("file", "products.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)),
+                supplier.getEmail());
+
+        assertThat(result.getTotalRows()).isEqualTo(6);
+        assertThat(result.getImportedCount()).isEqualTo(2);
+        assertThat(result.getFailedCount()).isEqualTo(4);
+        assertThat(result.getErrors()).extracting(ProductImportErrorDTO::getLine).containsExactly(3, 4, 5, 6);
+
+        assertThat(productRepository.findSkusByUserId(supplier.getId()))
+                .containsExactlyInAnyOrder(existing.getSku(), "MUG-1", "BOWL-1");
+        Integer stock = jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM products WHERE user_id = ? AND sku = 'MUG-1'", Integer.class, supplier.getId());
+        assertThat(stock).isEqualTo(10);
+    }
+}
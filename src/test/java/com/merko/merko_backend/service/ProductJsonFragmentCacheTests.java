@@ -0,0 +1,70 @@
+package com.merko.merko_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merko.merko_backend.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductJsonFragmentCacheTests {
+
+    private static final LocalDateTime VERSION = LocalDateTime.of(2025, 5, 1, 12, 0, 30);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ProductJsonFragmentCache cache = new ProductJsonFragmentCache(objectMapper, true, 100, 3600);
+
+    @Test
+    void concatenatedFragmentsMatchSerializingTheWholeList() throws IOException {
+        List<ProductDTO> products = List.of(dto(1, "Widget"), dto(2, "Gadget \"Pro\""), dto(3, "Ünïcode"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ProductJsonFragmentCache.writeArray(out, products.stream().map(cache::render).toList());
+
+        assertThat(objectMapper.readTree(out.toByteArray())).isEqualTo(objectMapper.readTree(objectMapper.writeValueAsBytes(products)));
+    }
+
+    @Test
+    void writesAnEmptyArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ProductJsonFragmentCache.writeArray(out, List.of());
+
+        assertThat(out.toString()).isEqualTo("[]");
+    }
+
+    @Test
+    void servesAFragmentOnlyForItsRowVersionUntilTheProductChanges() {
+        byte[] json = cache.render(dto(1, "Widget"));
+
+        assertThat(cache.get(1, VERSION)).isSameAs(json);
+        assertThat(cache.get(1, VERSION.plusSeconds(1))).isNull();
+
+        cache.render(dto(1, "Widget"));
+        cache.onProductChange(ProductChangeEvent.deleted(1, 9L));
+        assertThat(cache.get(1, VERSION)).isNull();
+    }
+
+    @Test
+    void rendersWithoutCachingWhenDisabled() {
+        ProductJsonFragmentCache disabled = new ProductJsonFragmentCache(objectMapper, false, 100, 3600);
+
+        assertThat(disabled.render(dto(1, "Widget"))).isNotEmpty();
+        assertThat(disabled.get(1, VERSION)).isNull();
+    }
+
+    private static ProductDTO dto(Integer id, String name) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        dto.setProductName(name);
+        dto.setPrice(new BigDecimal("9.99"));
+        dto.setUpdatedAt(VERSION);
+        return dto;
+    }
+}
@@ -0,0 +1,106 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTests {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.loadFromScan(List.of(
+                product(1, "Espresso Machine", "Bellona", "Kitchen", "Brews café-style coffee", "Active"),
+                product(2, "Coffee Grinder", "Bellona", "Kitchen", "Burr grinder for espresso beans", "Active"),
+                product(3, "Coffee Table", "Oakline", "Furniture", "Solid oak", "Active"),
+                product(4, "Espresso Cups", "Bellona", "Kitchen", null, "Draft")));
+        index.scanCompleted();
+    }
+
+    @Test
+    void tokenizesFoldingCaseAndAccentsAndDroppingStopWords() {
+        assertThat(ProductSearchIndex.tokenize("The Café-Crème of São Paulo, 2 x 250ml"))
+                .containsExactly("cafe", "creme", "sao", "paulo", "2", "x", "250ml");
+        assertThat(ProductSearchIndex.tokenize("  ")).isEmpty();
+        assertThat(ProductSearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex.SearchResult result = index.search("espresso", true, 10);
+
+        assertThat(ids(result)).containsExactly(1, 2);
+        assertThat(result.getTotalMatches()).isEqualTo(2);
+        assertThat(result.isIndexReady()).isTrue();
+    }
+
+    @Test
+    void requiresEveryTokenAndMatchesPrefixes() {
+        assertThat(ids(index.search("coffee grind", true, 10))).containsExactly(2);
+        assertThat(ids(index.search("CAFE", true, 10))).containsExactly(1);
+        assertThat(ids(index.search("coffee tea", true, 10))).isEmpty();
+    }
+
+    @Test
+    void wholeWordMatchesRankAbovePrefixMatches() {
+        index.onProductChange(ProductChangeEvent.created(product(5, "Oak Shelf", null, "Furniture", null, "Active")));
+        index.onProductChange(ProductChangeEvent.created(product(6, "Oakley Shelf", null, "Furniture", null, "Active")));
+
+        assertThat(ids(index.search("oak shelf", true, 10))).containsExactly(5, 6);
+    }
+
+    @Test
+    void keepsOnlyTheTopResultsButCountsAllMatches() {
+        ProductSearchIndex.SearchResult result = index.search("bellona", false, 1);
+
+        assertThat(result.getHits()).hasSize(1);
+        assertThat(result.getTotalMatches()).isEqualTo(3);
+    }
+
+    @Test
+    void filtersInactiveProductsForMerchants() {
+        assertThat(ids(index.search("cups", true, 10))).isEmpty();
+        assertThat(ids(index.search("cups", false, 10))).containsExactly(4);
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.onProductChange(ProductChangeEvent.updated(product(3, "Side Table", "Oakline", "Furniture", null, "Active")));
+        index.onProductChange(ProductChangeEvent.deleted(2, 1L));
+
+        assertThat(ids(index.search("coffee table", true, 10))).isEmpty();
+        assertThat(ids(index.search("side", true, 10))).containsExactly(3);
+        assertThat(ids(index.search("grinder", true, 10))).isEmpty();
+    }
+
+    @Test
+    void aProductDeletedDuringTheBuildIsNotAddedBack() {
+        ProductSearchIndex building = new ProductSearchIndex();
+        building.onProductChange(ProductChangeEvent.deleted(1, 1L));
+        building.loadFromScan(List.of(product(1, "Espresso Machine", null, null, null, "Active")));
+        building.scanCompleted();
+
+        assertThat(ids(building.search("espresso", false, 10))).isEmpty();
+    }
+
+    private static List<Integer> ids(ProductSearchIndex.SearchResult result) {
+        return result.getHits().stream().map(ProductSearchIndex.Hit::getId).toList();
+    }
+
+    static Product product(Integer id, String name, String brand, String category, String description, String status) {
+        Product product = new Product();
+        product.setId(id);
+        product.setUserId(1L);
+        product.setProductName(name);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setStatus(status);
+        return product;
+    }
+}
@@ -0,0 +1,98 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A supplier edit and an order deduction on one product; runs against the configured MySQL database
+@SpringBootTest
+class ProductWriteConcurrencyTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void anEditWaitingOnADeductionsRowLockDoesNotStallItsCommit() throws Exception {
+        Product product = fixtures.product(fixtures.supplier(), 10, new BigDecimal("1.00"));
+        CountDownLatch rowLocked = new CountDownLatch(1);
+
+        CompletableFuture<Void> deduction = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            productRepository.deductStock(product.getId(), 3, LocalDateTime.now());
+            eventPublisher.publishEvent(ProductChangeEvent.stockChanged(product));
+            rowLocked.countDown();
+            // Lets the edit reach its commit while this transaction still holds the row lock
+            sleep(500);
+        }));
+
+        assertThat(rowLocked.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> edit = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            // Managed entity: the UPDATE is deferred to the commit, as in ProductService.updateProduct
+            Product managed = productRepository.findById(product.getId()).orElseThrow();
+            managed.setProductName("Renamed");
+            productRepository.save(managed);
+            eventPublisher.publishEvent(ProductChangeEvent.updated(managed));
+        }));
+
+        // Far below innodb_lock_wait_timeout, which is how long a lock-order deadlock would last
+        CompletableFuture.allOf(deduction, edit).get(20, TimeUnit.SECONDS);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT product_name FROM products WHERE id = ?", String.class,
+                product.getId())).isEqualTo("Renamed");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_changes WHERE product_id = ?",
+                Integer.class, product.getId())).isEqualTo(2);
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
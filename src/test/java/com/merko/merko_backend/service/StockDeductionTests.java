@@ -0,0 +1,126 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Concurrent stock writers on one product; runs against the configured MySQL database
+@SpringBootTest
+class StockDeductionTests {
+
+    private static final int WRITERS = 20;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLockStripes stockLocks;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void concurrentDeductionsNeverOversell() throws Exception {
+        Product product = fixtures.product(fixtures.supplier(), 10, new BigDecimal("1.00"));
+
+        List<Integer> updated = concurrently(() -> inTransaction(() -> {
+            stockLocks.lockUntilCompletion(product.getId());
+            return productRepository.deductStock(product.getId(), 1, LocalDateTime.now());
+        }));
+
+        assertThat(updated).filteredOn(rows -> rows == 1).hasSize(10);
+        assertThat(stock(product)).isZero();
+    }
+
+    @Test
+    void aDeductionLargerThanTheStockChangesNothing() {
+        Product product = fixtures.product(fixtures.supplier(), 2, new BigDecimal("1.00"));
+
+        int updated = inTransaction(() -> productRepository.deductStock(product.getId(), 3, LocalDateTime.now()));
+
+        assertThat(updated).isZero();
+        assertThat(stock(product)).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentRestoresAreAllApplied() throws Exception {
+        Product product = fixtures.product(fixtures.supplier(), 0, new BigDecimal("1.00"));
+
+        concurrently(() -> inTransaction(() -> {
+            stockLocks.lockUntilCompletion(product.getId());
+            return productRepository.restoreStock(product.getId(), 2, LocalDateTime.now());
+        }));
+
+        assertThat(stock(product)).isEqualTo(2 * WRITERS);
+    }
+
+    private <T> T inTransaction(Callable<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                return work.call();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
+    private static List<Integer> concurrently(Callable<Integer> writer) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                futures.add(pool.submit(writer));
+            }
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Integer stock(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class,
+                product.getId());
+    }
+}
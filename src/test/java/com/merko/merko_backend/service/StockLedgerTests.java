@@ -0,0 +1,119 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.TestFixtures;
+import com.merko.merko_backend.dto.StockLedgerDTO;
+import com.merko.merko_backend.dto.StockMovementDTO;
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.entity.StockMovement;
+import com.merko.merko_backend.repository.ProductRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs against the configured MySQL database; scheduled snapshots are pushed out of the way and
+// a negative grace period lets a snapshot fold movements committed in the same second
+@SpringBootTest(properties = {
+        "inventory.ledger.snapshot-interval-ms=3600000",
+        "inventory.ledger.snapshot-grace-seconds=-1"
+})
+class StockLedgerTests {
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new TestFixtures(jdbcTemplate, userRepository, productRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanUp();
+    }
+
+    @Test
+    void movementsAreWrittenWithTheTransactionThatRecordsThem() {
+        Product product = fixtures.product(fixtures.supplier(), 7, new BigDecimal("1.00"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            stockLedger.record(product, 10, StockMovement.Reason.INITIAL, "create");
+            stockLedger.record(product, -3, StockMovement.Reason.ORDER_DEDUCTION, "order-1");
+            // Nothing is written before the commit
+            assertThat(movementCount(product)).isZero();
+        });
+
+        StockLedgerDTO ledger = stockLedger.getLedger(product, null);
+        assertThat(ledger.getLedgerQuantity()).isEqualTo(7);
+        assertThat(ledger.isConsistent()).isTrue();
+        assertThat(ledger.getMovements()).extracting(StockMovementDTO::getDelta).containsExactly(-3, 10);
+    }
+
+    @Test
+    void movementsOutsideATransactionAreWrittenAtOnce() {
+        Product product = fixtures.product(fixtures.supplier(), 5, new BigDecimal("1.00"));
+
+        stockLedger.record(product, 5, StockMovement.Reason.INITIAL, "create");
+
+        assertThat(movementCount(product)).isEqualTo(1);
+        assertThat(stockLedger.getLedger(product, null).isConsistent()).isTrue();
+    }
+
+    @Test
+    void snapshotsFoldMovementsAndNewerOnesAreAddedOnTop() {
+        Product product = fixtures.product(fixtures.supplier(), 4, new BigDecimal("1.00"));
+        stockLedger.record(product, 10, StockMovement.Reason.INITIAL, "create");
+        stockLedger.record(product, -8, StockMovement.Reason.ORDER_DEDUCTION, "order-1");
+        stockLedger.takeSnapshots();
+
+        stockLedger.recordAdjustment(product, 2, 4, StockMovement.Reason.ADJUSTMENT, "edit");
+
+        StockLedgerDTO ledger = stockLedger.getLedger(product, 1);
+        assertThat(ledger.getSnapshotQuantity()).isEqualTo(2);
+        assertThat(ledger.getLedgerQuantity()).isEqualTo(4);
+        assertThat(ledger.isConsistent()).isTrue();
+        assertThat(ledger.getMovements()).extracting(StockMovementDTO::getDelta).containsExactly(2);
+    }
+
+    @Test
+    void aRolledBackChangeNeverReachesTheLedger() {
+        Product product = fixtures.product(fixtures.supplier(), 0, new BigDecimal("1.00"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            stockLedger.record(product, -5, StockMovement.Reason.ORDER_DEDUCTION, "order-1");
+            status.setRollbackOnly();
+        });
+
+        StockLedgerDTO ledger = stockLedger.getLedger(product, null);
+        assertThat(ledger.getLedgerQuantity()).isZero();
+        assertThat(ledger.getMovements()).isEmpty();
+    }
+
+    private Integer movementCount(Product product) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_movements WHERE product_id = ?",
+                Integer.class, product.getId());
+    }
+}
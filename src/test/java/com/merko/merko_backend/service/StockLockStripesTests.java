@@ -0,0 +1,83 @@
+package com.merko.merko_backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Transactions are simulated by driving transaction synchronization by hand
+class StockLockStripesTests {
+
+    private final StockLockStripes stripes = new StockLockStripes(4);
+
+    StockLockStripesTests() {
+        ReflectionTestUtils.setField(stripes, "lockTimeoutMs", 50L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete();
+        }
+    }
+
+    @Test
+    void refusesToLockOutsideATransaction() {
+        assertThatThrownBy(() -> stripes.lockUntilCompletion(1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void aSecondWriterTimesOutUntilTheFirstTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        stripes.lockUntilCompletion(1);
+
+        // Product 5 shares product 1's stripe
+        assertThatThrownBy(() -> inOtherTransaction(5))
+                .hasRootCauseMessage("Stock for this product is being updated, please try again");
+
+        complete();
+        inOtherTransaction(5);
+
+        assertThat(stripes.getStats())
+                .containsEntry("acquired", 2L)
+                .containsEntry("contended", 1L)
+                .containsEntry("timedOut", 1L);
+    }
+
+    @Test
+    void productsOnOtherStripesDoNotWait() {
+        TransactionSynchronizationManager.initSynchronization();
+        stripes.lockUntilCompletion(1);
+
+        inOtherTransaction(2);
+
+        assertThat(stripes.getStats()).containsEntry("contended", 0L);
+    }
+
+    private void inOtherTransaction(Integer productId) {
+        CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                stripes.lockUntilCompletion(productId);
+            } finally {
+                complete();
+            }
+        }).join();
+    }
+
+    private static void complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+}
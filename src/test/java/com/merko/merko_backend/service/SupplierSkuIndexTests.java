@@ -0,0 +1,90 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Product;
+import com.merko.merko_backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SupplierSkuIndexTests {
+
+    private static final Long SUPPLIER = 9L;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final SupplierSkuIndex index = new SupplierSkuIndex(10, 3600);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "productRepository", productRepository);
+        when(productRepository.findSkuKeysByUserId(SUPPLIER)).thenReturn(List.of(key(1, "MUG-1"), key(2, "plate-2")));
+    }
+
+    @Test
+    void loadsASuppliersSkusOnceAndMatchesLikeMysql() {
+        assertThat(index.findProductId(SUPPLIER, "MUG-1")).isEqualTo(1);
+        assertThat(index.findProductId(SUPPLIER, "mug-1  ")).isEqualTo(1);
+        assertThat(index.findProductId(SUPPLIER, "PLATE-2")).isEqualTo(2);
+        assertThat(index.findProductId(SUPPLIER, "BOWL-3")).isNull();
+        assertThat(index.findProductId(SUPPLIER, null)).isNull();
+
+        verify(productRepository, times(1)).findSkuKeysByUserId(SUPPLIER);
+    }
+
+    @Test
+    void followsProductChanges() {
+        index.findProductId(SUPPLIER, "MUG-1");
+
+        index.onProductChange(ProductChangeEvent.updated(product(1, "MUG-1B")));
+        index.onProductChange(ProductChangeEvent.created(product(3, "BOWL-3")));
+        index.onProductChange(ProductChangeEvent.deleted(2, SUPPLIER));
+
+        assertThat(index.findProductId(SUPPLIER, "MUG-1")).isNull();
+        assertThat(index.findProductId(SUPPLIER, "MUG-1B")).isEqualTo(1);
+        assertThat(index.findProductId(SUPPLIER, "BOWL-3")).isEqualTo(3);
+        assertThat(index.findProductId(SUPPLIER, "PLATE-2")).isNull();
+        verify(productRepository, times(1)).findSkuKeysByUserId(SUPPLIER);
+    }
+
+    @Test
+    void doesNotCacheALoadThatRacedWithAWrite() {
+        when(productRepository.findSkuKeysByUserId(SUPPLIER)).thenAnswer(invocation -> {
+            index.onProductChange(ProductChangeEvent.created(product(3, "BOWL-3")));
+            return List.of(key(1, "MUG-1"));
+        });
+
+        index.findProductId(SUPPLIER, "MUG-1");
+        index.findProductId(SUPPLIER, "MUG-1");
+
+        verify(productRepository, times(2)).findSkuKeysByUserId(SUPPLIER);
+    }
+
+    private static ProductRepository.SkuKey key(Integer id, String sku) {
+        return new ProductRepository.SkuKey() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public String getSku() {
+                return sku;
+            }
+        };
+    }
+
+    private static Product product(Integer id, String sku) {
+        Product product = new Product();
+        product.setId(id);
+        product.setUserId(SUPPLIER);
+        product.setSku(sku);
+        return product;
+    }
+}
@@ -0,0 +1,102 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.repository.ProductImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Collects a temporary upload directory; image references are mocked
+class UploadGarbageCollectorTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private final ProductImageRepository productImageRepository = mock(ProductImageRepository.class);
+    private final ProductImageStorage imageStorage = mock(ProductImageStorage.class);
+    private final UploadGarbageCollector collector = new UploadGarbageCollector();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(collector, "productImageRepository", productImageRepository);
+        ReflectionTestUtils.setField(collector, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(collector, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(collector, "enabled", true);
+        ReflectionTestUtils.setField(collector, "graceHours", 24L);
+        ReflectionTestUtils.setField(collector, "batchSize", 2);
+        ReflectionTestUtils.setField(collector, "batchPauseMs", 0L);
+        ReflectionTestUtils.setField(collector, "maxDeletesPerRun", 100);
+    }
+
+    @Test
+    void deletesOnlyOldUnreferencedFilesAndTheirRenditions() throws IOException {
+        when(productImageRepository.findAllImageUrls()).thenReturn(List.of("/uploads/kept.png", "other.png"));
+        old("kept.png");
+        old("thumb/kept.png.jpg");
+        old("other.png");
+        old("orphan.png");
+        old("thumb/orphan.png.jpg");
+        old("medium/orphan.png.jpg");
+        old("upload123.tmp");
+        old("backup/notes.txt");
+        Files.writeString(uploadDir.resolve("young.png"), "x");
+
+        collector.collect();
+
+        assertThat(uploadDir.resolve("kept.png")).exists();
+        assertThat(uploadDir.resolve("thumb/kept.png.jpg")).exists();
+        assertThat(uploadDir.resolve("other.png")).exists();
+        assertThat(uploadDir.resolve("backup/notes.txt")).exists();
+        assertThat(uploadDir.resolve("young.png")).exists();
+        assertThat(uploadDir.resolve("orphan.png")).doesNotExist();
+        assertThat(uploadDir.resolve("thumb/orphan.png.jpg")).doesNotExist();
+        assertThat(uploadDir.resolve("medium/orphan.png.jpg")).doesNotExist();
+        assertThat(uploadDir.resolve("upload123.tmp")).doesNotExist();
+        assertThat(collector.getStats()).containsEntry("lastRunDeleted", 4L);
+    }
+
+    @Test
+    void reChecksReferencesBeforeDeleting() throws IOException {
+        old("referenced-since.png");
+        old("uploaded-again.png");
+        when(productImageRepository.countByImageUrl("referenced-since.png")).thenReturn(1L);
+        when(imageStorage.isRecentlyStored("uploaded-again.png")).thenReturn(true);
+
+        collector.collect();
+
+        assertThat(uploadDir.resolve("referenced-since.png")).exists();
+        assertThat(uploadDir.resolve("uploaded-again.png")).exists();
+    }
+
+    @Test
+    void stopsAtTheDeleteLimit() throws IOException {
+        ReflectionTestUtils.setField(collector, "maxDeletesPerRun", 3);
+        for (int i = 0; i < 5; i++) {
+            old("orphan" + i + ".png");
+        }
+
+        collector.collect();
+
+        // Checked between files, so the batch that crosses the limit still completes
+        assertThat(uploadDir.toFile().list()).hasSize(1);
+    }
+
+    private void old(String relative) throws IOException {
+        Path file = uploadDir.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "content of " + relative);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+    }
+}
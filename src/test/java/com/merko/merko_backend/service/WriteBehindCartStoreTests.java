@@ -0,0 +1,306 @@
+package com.merko.merko_backend.service;
+
+import com.merko.merko_backend.entity.Cart;
+import com.merko.merko_backend.repository.CartItemRepository;
+import com.merko.merko_backend.repository.CartRepository;
+import com.merko.merko_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// The store against mocked repositories; MySQL writes are captured, the log is real
+class WriteBehindCartStoreTests {
+
+    private static final Long USER = 7L;
+
+    @TempDir
+    Path logDir;
+
+    private CartRepository cartRepository;
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicLong cartIds = new AtomicLong(100);
+    private final List<WriteBehindCartStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            Cart cart = invocation.getArgument(0);
+            cart.setId(cartIds.incrementAndGet());
+            return cart;
+        });
+        when(cartRepository.lockActiveCartIds(anyCollection()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (WriteBehindCartStore store : stores) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void completedCheckoutForgetsAnUnchangedCart() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+
+        long version = store.beginCheckout(USER);
+        assertThat(store.view(USER).getCartId()).isEqualTo(101L);
+
+        store.completeCheckout(USER, version);
+
+        WriteBehindCartStore.StoredCart cart = store.view(USER);
+        assertThat(cart.getCartId()).isNull();
+        assertThat(cart.getLines()).isEmpty();
+    }
+
+    @Test
+    void changesMadeDuringCheckoutMoveToANewCart() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2, 2, 1), Map.of(1, new BigDecimal("3.00"), 2, new BigDecimal("5.00")));
+        long version = store.beginCheckout(USER);
+        clearInvocations(jdbcTemplate);
+
+        // Acknowledged after the checkout's snapshot, before its commit
+        store.addAll(USER, Map.of(3, 4), Map.of(3, new BigDecimal("1.00")));
+        store.flush();
+        verifyNoInteractions(jdbcTemplate);
+
+        store.completeCheckout(USER, version);
+
+        WriteBehindCartStore.StoredCart cart = store.view(USER);
+        assertThat(cart.getCartId()).isNull();
+        assertThat(cart.getLines()).extracting(WriteBehindCartStore.StoredLine::getProductId).containsExactly(3);
+        assertThat(cart.getLines().get(0).getQuantity()).isEqualTo(4);
+
+        store.flush();
+        assertThat(store.view(USER).getCartId()).isEqualTo(102L);
+        assertThat(upsertedRows()).singleElement().satisfies(row -> {
+            assertThat(row[0]).isEqualTo(102L);
+            assertThat(row[1]).isEqualTo(3);
+            assertThat(row[2]).isEqualTo(4);
+        });
+    }
+
+    @Test
+    void aFlushDuringCheckoutLeavesTheCartAndItsSegments() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        store.beginCheckout(USER);
+        store.addAll(USER, Map.of(1, 1), Map.of());
+
+        store.flush();
+        assertThat(segments()).hasSizeGreaterThan(1);
+
+        store.abortCheckout(USER);
+        store.flush();
+        assertThat(segments()).hasSize(1);
+        assertThat(store.view(USER).getLines().get(0).getQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void aRestartReplaysACompletedCheckout() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        long version = store.beginCheckout(USER);
+        store.addAll(USER, Map.of(2, 1), Map.of(2, new BigDecimal("5.00")));
+        store.completeCheckout(USER, version);
+
+        // No shutdown flush: the new instance only has the log
+        WriteBehindCartStore restarted = startStore();
+
+        assertThat(restarted.view(USER).getLines()).extracting(WriteBehindCartStore.StoredLine::getProductId)
+                .containsExactly(2);
+    }
+
+    @Test
+    void aCartAbandonedSinceItWasLoadedMovesToANewCart() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        store.flush();
+        assertThat(store.view(USER).getCartId()).isEqualTo(101L);
+
+        // The reaper marked cart 101 ABANDONED and deleted its lines
+        when(cartRepository.lockActiveCartIds(anyCollection())).thenReturn(List.of());
+        clearInvocations(jdbcTemplate);
+        store.addAll(USER, Map.of(2, 1), Map.of(2, new BigDecimal("5.00")));
+        store.flush();
+
+        assertThat(store.view(USER).getCartId()).isEqualTo(102L);
+        assertThat(upsertedRows()).extracting(row -> row[0], row -> row[1], row -> row[2])
+                .containsExactlyInAnyOrder(tuple(102L, 1, 2), tuple(102L, 2, 1));
+    }
+
+    @Test
+    void aRestartReplaysEveryKindOfChange() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2, 2, 1, 3, 5),
+                Map.of(1, new BigDecimal("3.00"), 2, new BigDecimal("5.00"), 3, new BigDecimal("1.00")));
+        store.setQuantity(USER, lineOf(store, 1).getId(), 9);
+        store.remove(USER, lineOf(store, 2).getId());
+        store.addAll(8L, Map.of(4, 1), Map.of(4, new BigDecimal("2.00")));
+        store.clear(8L);
+
+        WriteBehindCartStore restarted = startStore();
+
+        assertThat(restarted.view(USER).getLines())
+                .extracting(WriteBehindCartStore.StoredLine::getProductId, WriteBehindCartStore.StoredLine::getQuantity,
+                        WriteBehindCartStore.StoredLine::getPriceAtTime)
+                .containsExactlyInAnyOrder(tuple(1, 9, new BigDecimal("3.00")), tuple(3, 5, new BigDecimal("1.00")));
+        assertThat(restarted.view(8L).getLines()).isEmpty();
+        // The replayed state was written at startup
+        assertThat(upsertedRows()).extracting(row -> row[1], row -> row[2])
+                .containsExactlyInAnyOrder(tuple(1, 9), tuple(3, 5));
+    }
+
+    @Test
+    void aSuccessfulFlushDeletesTheSegmentsItCovers() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        store.flush();
+        store.addAll(USER, Map.of(1, 1), Map.of());
+        store.flush();
+
+        assertThat(segments()).hasSize(1);
+        assertThat(store.getStats()).containsEntry("dirtyCarts", 0).containsEntry("flushFailures", 0L);
+    }
+
+    @Test
+    void aFailedFlushKeepsTheLogForTheNextOne() throws IOException {
+        WriteBehindCartStore store = startStore();
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO cart_items"), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("MySQL is down"));
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+
+        store.flush();
+
+        assertThat(segments()).hasSize(2);
+        assertThat(store.getStats()).containsEntry("dirtyCarts", 1).containsEntry("flushFailures", 1L);
+
+        // Still recoverable from the log if the process dies now
+        WriteBehindCartStore restarted = startStore();
+        assertThat(restarted.view(USER).getLines()).extracting(WriteBehindCartStore.StoredLine::getQuantity)
+                .containsExactly(2);
+    }
+
+    @Test
+    void aRestartAfterAnUnfinishedCheckoutThatCommittedDropsTheOrderedLines() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        store.beginCheckout(USER);
+        store.addAll(USER, Map.of(2, 1), Map.of(2, new BigDecimal("5.00")));
+        // Stopped after the checkout committed, before completeCheckout logged it
+        when(cartRepository.findById(101L)).thenReturn(Optional.of(cart(101L, "ORDERED")));
+
+        WriteBehindCartStore restarted = startStore();
+
+        assertThat(restarted.view(USER).getLines()).extracting(WriteBehindCartStore.StoredLine::getProductId)
+                .containsExactly(2);
+        assertThat(restarted.view(USER).getCartId()).isEqualTo(102L);
+    }
+
+    @Test
+    void aRestartAfterAnUnfinishedCheckoutThatDidNotCommitKeepsTheCart() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        store.beginCheckout(USER);
+        when(cartRepository.findById(101L)).thenReturn(Optional.of(cart(101L, "ACTIVE")));
+
+        WriteBehindCartStore restarted = startStore();
+
+        assertThat(restarted.view(USER).getLines()).extracting(WriteBehindCartStore.StoredLine::getProductId)
+                .containsExactly(1);
+    }
+
+    @Test
+    void aCompletedCheckoutThatCannotBeLoggedStillSucceeds() throws IOException {
+        WriteBehindCartStore store = startStore();
+        store.addAll(USER, Map.of(1, 2), Map.of(1, new BigDecimal("3.00")));
+        long version = store.beginCheckout(USER);
+        ((FileChannel) ReflectionTestUtils.getField(store, "segment")).close();
+
+        store.completeCheckout(USER, version);
+
+        assertThat(store.view(USER).getLines()).isEmpty();
+        // Replay finishes the checkout from its B record
+        when(cartRepository.findById(101L)).thenReturn(Optional.of(cart(101L, "ORDERED")));
+        assertThat(startStore().view(USER).getLines()).isEmpty();
+    }
+
+    private WriteBehindCartStore startStore() throws IOException {
+        WriteBehindCartStore store = new WriteBehindCartStore(mock(PlatformTransactionManager.class), 8);
+        ReflectionTestUtils.setField(store, "cartRepository", cartRepository);
+        ReflectionTestUtils.setField(store, "cartItemRepository", mock(CartItemRepository.class));
+        ReflectionTestUtils.setField(store, "userRepository", mock(UserRepository.class));
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "mode", "memory");
+        ReflectionTestUtils.setField(store, "maxCarts", 100);
+        ReflectionTestUtils.setField(store, "logDir", logDir.toString());
+        store.start();
+        stores.add(store);
+        return store;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> upsertedRows() {
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith("INSERT INTO cart_items"), batches.capture());
+        List<Object[]> rows = new ArrayList<>();
+        batches.getAllValues().forEach(rows::addAll);
+        return rows;
+    }
+
+    private static Cart cart(Long id, String status) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        cart.setStatus(status);
+        return cart;
+    }
+
+    private static WriteBehindCartStore.StoredLine lineOf(WriteBehindCartStore store, Integer productId) {
+        return store.view(USER).getLines().stream()
+                .filter(line -> line.getProductId().equals(productId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(logDir)) {
+            return files.toList();
+        }
+    }
+}
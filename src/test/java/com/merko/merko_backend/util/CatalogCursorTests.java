@@ -0,0 +1,50 @@
+package com.merko.merko_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogCursorTests {
+
+    @Test
+    void decodesWhatItEncodes() {
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_793_000);
+
+        CatalogCursor cursor = CatalogCursor.decode(new CatalogCursor(updatedAt, 4711).encode());
+
+        assertThat(cursor.getUpdatedAt()).isEqualTo(updatedAt);
+        assertThat(cursor.getId()).isEqualTo(4711);
+    }
+
+    @Test
+    void keepsWholeSecondTimestamps() {
+        // LocalDateTime.toString drops zero seconds, which parse must still accept
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        assertThat(CatalogCursor.decode(new CatalogCursor(updatedAt, 1).encode()).getUpdatedAt()).isEqualTo(updatedAt);
+    }
+
+    @Test
+    void encodesUrlSafeWithoutPadding() {
+        String token = new CatalogCursor(LocalDateTime.of(2025, 6, 30, 23, 59, 59), 12).encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        String missingId = Base64.getUrlEncoder().encodeToString("2025-01-01T00:00|".getBytes(StandardCharsets.UTF_8));
+        String badDate = Base64.getUrlEncoder().encodeToString("yesterday|5".getBytes(StandardCharsets.UTF_8));
+
+        for (String token : new String[]{"not base64!", missingId, badDate, ""}) {
+            assertThatThrownBy(() -> CatalogCursor.decode(token))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid catalog cursor");
+        }
+    }
+}
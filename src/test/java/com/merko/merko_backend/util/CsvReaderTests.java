@@ -0,0 +1,70 @@
+package com.merko.merko_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTests {
+
+    @Test
+    void splitsPlainFieldsIncludingEmptyOnes() throws IOException {
+        assertThat(readAll("a,b,,d\n1,2,3,\n")).containsExactly(
+                List.of("a", "b", "", "d"),
+                List.of("1", "2", "3", ""));
+    }
+
+    @Test
+    void keepsCommasEscapedQuotesAndLineBreaksInsideQuotes() throws IOException {
+        assertThat(readAll("\"Mug, large\",\"12\"\" ruler\",\"line one\nline two\"\n")).containsExactly(
+                List.of("Mug, large", "12\" ruler", "line one\nline two"));
+    }
+
+    @Test
+    void acceptsCrLfAndAMissingFinalLineBreak() throws IOException {
+        assertThat(readAll("a,b\r\nc,d")).containsExactly(List.of("a", "b"), List.of("c", "d"));
+    }
+
+    @Test
+    void skipsBlankLinesAndReportsTheLineEachRecordStartsOn() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("header\n\n\"multi\nline\"\r\n\r\nlast\n"));
+
+        csv.next();
+        assertThat(csv.getRecordLine()).isEqualTo(1);
+        assertThat(csv.next()).containsExactly("multi\nline");
+        assertThat(csv.getRecordLine()).isEqualTo(3);
+        assertThat(csv.next()).containsExactly("last");
+        assertThat(csv.getRecordLine()).isEqualTo(6);
+        assertThat(csv.next()).isNull();
+    }
+
+    @Test
+    void treatsAQuoteInsideAnUnquotedFieldAsText() throws IOException {
+        assertThat(readAll("5\" nail,x\n")).containsExactly(List.of("5\" nail", "x"));
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuotedField() {
+        CsvReader csv = new CsvReader(new StringReader("ok\n\"never closed,\n"));
+
+        assertThatThrownBy(() -> {
+            csv.next();
+            csv.next();
+        }).isInstanceOf(IOException.class).hasMessage("Unterminated quoted field starting on line 2");
+    }
+
+    private static List<List<String>> readAll(String text) throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(text));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
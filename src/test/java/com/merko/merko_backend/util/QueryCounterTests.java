@@ -0,0 +1,64 @@
+package com.merko.merko_backend.util;
+
+import com.merko.merko_backend.config.QueryCountInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryCounterTests {
+
+    private final QueryCountInspector inspector = new QueryCountInspector();
+
+    @AfterEach
+    void tearDown() {
+        QueryCounter.clear();
+    }
+
+    @Test
+    void countsInspectedStatementsSinceAMark() {
+        QueryCounter.reset();
+        inspector.inspect("select 1");
+        long mark = QueryCounter.current();
+
+        assertThat(inspector.inspect("select p from products p")).isEqualTo("select p from products p");
+        inspector.inspect("select i from product_images i where i.product_id in (?, ?)");
+
+        assertThat(QueryCounter.since(mark)).isEqualTo(2);
+    }
+
+    @Test
+    void budgetFailsOnlyWhenExceeded() {
+        QueryCounter.reset();
+        long mark = QueryCounter.current();
+        inspector.inspect("select 1");
+        inspector.inspect("select 2");
+
+        QueryCounter.assertAtMost(mark, 2, "listing");
+        inspector.inspect("select 3");
+        assertThatThrownBy(() -> QueryCounter.assertAtMost(mark, 2, "listing"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("listing executed 3 SQL statements, expected at most 2");
+    }
+
+    @Test
+    void countsPerThread() throws InterruptedException {
+        QueryCounter.reset();
+        inspector.inspect("select 1");
+
+        AtomicLong other = new AtomicLong(-1);
+        Thread thread = new Thread(() -> {
+            inspector.inspect("select 2");
+            other.set(QueryCounter.current());
+            QueryCounter.clear();
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(other.get()).isEqualTo(1);
+        assertThat(QueryCounter.current()).isEqualTo(1);
+    }
+}
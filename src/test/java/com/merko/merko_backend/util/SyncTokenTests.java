@@ -0,0 +1,35 @@
+package com.merko.merko_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncTokenTests {
+
+    @Test
+    void decodesWhatItEncodes() {
+        assertThat(SyncToken.decode(SyncToken.encode(0))).isZero();
+        assertThat(SyncToken.decode(SyncToken.encode(123456789L))).isEqualTo(123456789L);
+    }
+
+    @Test
+    void tokensAreUrlSafe() {
+        assertThat(SyncToken.encode(Long.MAX_VALUE)).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsForeignTokens() {
+        String unprefixed = Base64.getUrlEncoder().encodeToString("42".getBytes(StandardCharsets.UTF_8));
+        String notANumber = Base64.getUrlEncoder().encodeToString("c1:x".getBytes(StandardCharsets.UTF_8));
+
+        for (String token : new String[] {"not base64!", unprefixed, notANumber}) {
+            assertThatThrownBy(() -> SyncToken.decode(token))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid sync token");
+        }
+    }
+}